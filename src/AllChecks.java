@@ -0,0 +1,17 @@
+/**
+ * Runs every check harness in one JVM and exits with status 1 if any check failed.
+ * Takes the same optional testing directory argument as {@link ParserCheck}.
+ */
+public class AllChecks {
+
+    public static void main(String[] args) throws Exception {
+        GraphCheck.run();
+        ReferralCheck.run();
+        PodCheck.run();
+        RoommateCheck.run();
+        MessagingCheck.run();
+        ParserCheck.run(args.length > 0 ? args[0] : "testing");
+        SnapshotCheck.run();
+        CheckSupport.finish("AllChecks");
+    }
+}
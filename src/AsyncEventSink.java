@@ -0,0 +1,179 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Sink that hands records to a background writer through a lock-free ring
+ * buffer. A producer claims a slot with one getAndIncrement and stores a
+ * reference. It only waits when the buffer is full. The writer drains all
+ * available records into one buffer and writes it to the channel as UTF-8
+ * in large chunks.
+ *
+ * A failure writing to the channel stops output; the writer keeps draining
+ * the ring so producers do not block. It is reported by the next
+ * {@link #flush} or {@link #close}. If the writer itself dies, through an
+ * Error, producers waiting on a full ring fail with IllegalStateException
+ * instead of waiting forever.
+ */
+public class AsyncEventSink implements EventSink {
+
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final long IDLE_PARK_NANOS = 100_000;
+    // Waits on a full ring spin this many times, then yield, then park
+    private static final int FULL_SPINS = 128;
+    private static final int FULL_YIELDS = 16;
+
+    private final WritableByteChannel channel;
+    private final AtomicReferenceArray<String> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    // Next sequence the writer will read, and the end of what it has written out
+    private volatile long head;
+    private volatile long written;
+    private volatile boolean closed;
+    private volatile Throwable failure;
+    private final Thread writer;
+
+    /**
+     * Buffers up to 65536 records for the channel.
+     */
+    public AsyncEventSink(WritableByteChannel channel) {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param channel destination; closed by {@link #close}
+     * @param capacity records the ring holds before producers wait; rounded up to a power of two
+     */
+    public AsyncEventSink(WritableByteChannel channel, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.channel = channel;
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.writer = new Thread(this::drain, "event-sink-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Opens a sink that writes to a file, replacing its contents.
+     *
+     * @param file destination file
+     * @return sink writing to the file
+     * @throws IOException if the file cannot be opened
+     */
+    public static AsyncEventSink toFile(Path file) throws IOException {
+        return new AsyncEventSink(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    /**
+     * @throws NullPointerException if text is null; a null slot reads as not yet filled
+     */
+    @Override
+    public void write(String text) {
+        Objects.requireNonNull(text, "text");
+        if (closed) return;
+        long seq = tail.getAndIncrement();
+        if (seq - head >= slots.length()) awaitSlot(seq);
+        slots.lazySet((int) seq & mask, text);
+    }
+
+    /**
+     * Full: wakes the writer once, then backs off until it frees the slot.
+     *
+     * @throws IllegalStateException if the writer has stopped
+     */
+    private void awaitSlot(long seq) {
+        LockSupport.unpark(writer);
+        for (int waits = 0; seq - head >= slots.length(); waits++) {
+            if (!writer.isAlive()) throw new IllegalStateException("Event sink writer has stopped", failure);
+            if (waits < FULL_SPINS) Thread.onSpinWait();
+            else if (waits < FULL_SPINS + FULL_YIELDS) Thread.yield();
+            else LockSupport.parkNanos(this, IDLE_PARK_NANOS / 10);
+        }
+    }
+
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (written < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+        Throwable e = failure;
+        if (e instanceof IOException) throw new UncheckedIOException((IOException) e);
+        if (e instanceof RuntimeException) throw (RuntimeException) e;
+        if (e != null) throw new IllegalStateException("Event sink writer failed", e);
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        flush();
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drain() {
+        try {
+            drainRecords();
+        } catch (Throwable e) {
+            // Ends the writer; flush, close and producers on a full ring report it
+            if (failure == null) failure = e;
+        }
+    }
+
+    private void drainRecords() {
+        StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        long next = head;
+        while (true) {
+            // Take records in order; a claimed slot that is still null is not filled yet
+            String text;
+            while (buffer.length() < CHUNK_SIZE && (text = slots.get((int) next & mask)) != null) {
+                slots.lazySet((int) next & mask, null);
+                next++;
+                head = next;
+                buffer.append(text);
+            }
+            if (buffer.length() > 0) {
+                writeOut(buffer, encoder);
+                buffer.setLength(0);
+                written = next;
+                continue;
+            }
+            if (closed && next == tail.get()) return;
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        }
+    }
+
+    private void writeOut(StringBuilder buffer, CharsetEncoder encoder) {
+        if (failure != null) return;
+        try {
+            ByteBuffer bytes = encoder.encode(CharBuffer.wrap(buffer));
+            while (bytes.hasRemaining()) channel.write(bytes);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+    }
+}
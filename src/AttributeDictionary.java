@@ -0,0 +1,45 @@
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Thread-safe mapping from attribute strings to small dense int ids, so
+ * students can compare majors and companies as ints. Majors and company
+ * names share one id space; they are never compared with each other.
+ * Ids are handed out in first-seen order and never change.
+ *
+ * Entries are never removed, so a dictionary lives as long as the students
+ * encoded with it. The parser and the snapshot loader give each cohort its
+ * own, which goes away with the cohort. Students constructed without one use
+ * {@link #SHARED}, which keeps every value those students have used.
+ */
+public class AttributeDictionary {
+
+    /** Dictionary for students constructed without one. */
+    public static final AttributeDictionary SHARED = new AttributeDictionary();
+
+    /** Id used for null, so null values compare equal to each other and to nothing else. */
+    public static final int NULL_ID = -1;
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Returns the id of a value, assigning the next free id on first use.
+     *
+     * @param value attribute value, may be null
+     * @return the value's id, or {@link #NULL_ID} for null
+     */
+    public int idOf(String value) {
+        if (value == null) return NULL_ID;
+        Integer id = ids.get(value);
+        if (id != null) return id;
+        return ids.computeIfAbsent(value, v -> nextId.getAndIncrement());
+    }
+
+    /**
+     * @return number of distinct values seen so far
+     */
+    public int size() {
+        return ids.size();
+    }
+}
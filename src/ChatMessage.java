@@ -0,0 +1,58 @@
+/**
+ * One entry in a student's message log, seen from that student's side.
+ * Chats are recorded as SENT in the sender's log and RECEIVED in the
+ * receiver's; NOTE holds free text added through addMessageToHistory.
+ */
+public final class ChatMessage {
+
+    public enum Kind { SENT, RECEIVED, NOTE }
+
+    private final Kind kind;
+    private final String counterpart;
+    private final String text;
+
+    private ChatMessage(Kind kind, String counterpart, String text) {
+        this.kind = kind;
+        this.counterpart = counterpart;
+        this.text = text;
+    }
+
+    /**
+     * @param receiver name of the student the message went to
+     */
+    public static ChatMessage sent(String receiver, String text) {
+        return new ChatMessage(Kind.SENT, receiver, text);
+    }
+
+    /**
+     * @param sender name of the student the message came from
+     */
+    public static ChatMessage received(String sender, String text) {
+        return new ChatMessage(Kind.RECEIVED, sender, text);
+    }
+
+    public static ChatMessage note(String text) {
+        return new ChatMessage(Kind.NOTE, null, text);
+    }
+
+    public Kind getKind() { return kind; }
+
+    /**
+     * @return name of the other student, or null for notes
+     */
+    public String getCounterpart() { return counterpart; }
+
+    public String getText() { return text; }
+
+    /**
+     * @return the entry in the old history format, e.g. "To Alice: hi"
+     */
+    @Override
+    public String toString() {
+        switch (kind) {
+            case SENT: return "To " + counterpart + ": " + text;
+            case RECEIVED: return "From " + counterpart + ": " + text;
+            default: return text;
+        }
+    }
+}
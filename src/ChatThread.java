@@ -1,6 +1,6 @@
 /**
  * Thread for simulating chat messages between students.
- * Updates both students' message histories.
+ * Updates both students' message logs.
  */
 public class ChatThread implements Runnable {
 
@@ -15,18 +15,21 @@ public class ChatThread implements Runnable {
     }
 
     /**
-     * Adds message to histories and logs to console.
-     * Uses synchronized blocks for thread safety.
+     * Adds message to both logs and logs to console.
+     * The logs are lock-free, so concurrent chats never block each other.
      */
     @Override
     public void run() {
-        synchronized (sender) {
-            sender.addMessageToHistory("To " + receiver.name + ": " + message);
-        }
-        synchronized (receiver) {
-            receiver.addMessageToHistory("From " + sender.name + ": " + message);
-        }
-        
-        System.out.println(sender.name + " → " + receiver.name + ": " + message);
+        sender.getMessageLog().append(ChatMessage.sent(receiver.name, message));
+        receiver.getMessageLog().append(ChatMessage.received(sender.name, message));
+
+        EventLog.println(line(sender, receiver, message));
+    }
+
+    /**
+     * @return the console line for a chat message
+     */
+    static String line(UniversityStudent sender, UniversityStudent receiver, String message) {
+        return sender.name + " → " + receiver.name + ": " + message;
     }
 }
\ No newline at end of file
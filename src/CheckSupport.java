@@ -0,0 +1,134 @@
+import java.util.*;
+
+/**
+ * Shared pieces of the check harnesses: seeded cohort generators, a failure
+ * counter and the exit status. Each harness is a main-method class that
+ * compares an optimized path against a plain reference on random inputs.
+ * Run one with {@code java -cp out GraphCheck}, or all with {@link AllChecks}.
+ */
+public class CheckSupport {
+
+    static final String[] MAJORS = {"CS", "ECE", "Math", "Bio", "Chem", "Phys", "Econ", "Hist"};
+    static final String[] COMPANIES = {"Google", "Amazon", "Meta", "IBM", "NASA", "Pfizer", "Moderna",
+                                       "Apple", "Intel", "AMD", "Rare1", "Rare2"};
+
+    private static int checks;
+    private static int failures;
+
+    /**
+     * Dense cohort: few majors, ages and companies, so most pairs are connected.
+     * Names are S0, S1, ...; internships may repeat and Rare1 is held by about 1 in 200.
+     */
+    static List<UniversityStudent> cohort(int n, long seed) {
+        Random r = new Random(seed);
+        List<UniversityStudent> students = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            List<String> internships = new ArrayList<>();
+            int count = r.nextInt(4);
+            for (int k = 0; k < count; k++) internships.add(COMPANIES[r.nextInt(10)]);
+            if (r.nextInt(200) == 0) internships.add("Rare1");
+            students.add(new UniversityStudent("S" + i, 18 + r.nextInt(8), r.nextBoolean() ? "M" : "F",
+                    1 + r.nextInt(4), MAJORS[r.nextInt(MAJORS.length)], 2 + r.nextDouble() * 2,
+                    preferences(r, n, i), internships));
+        }
+        return students;
+    }
+
+    /**
+     * Sparse cohort: unique ages and mostly unique majors and companies, so each
+     * student has a handful of neighbors.
+     */
+    static List<UniversityStudent> sparse(int n, long seed) {
+        Random r = new Random(seed);
+        List<UniversityStudent> students = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            List<String> internships = new ArrayList<>();
+            int count = r.nextInt(3);
+            for (int k = 0; k < count; k++) internships.add("C" + r.nextInt(n / 2 + 1));
+            if (r.nextInt(50) == 0) internships.add("Rare1");
+            students.add(new UniversityStudent("S" + i, 1000 + i, "M", 1, "M" + r.nextInt(n), 3.0,
+                    preferences(r, n, i), internships));
+        }
+        return students;
+    }
+
+    private static List<String> preferences(Random r, int n, int self) {
+        List<String> prefs = new ArrayList<>();
+        int count = r.nextInt(5);
+        for (int k = 0; k < count; k++) {
+            String name = "S" + r.nextInt(n);
+            if (!name.equals("S" + self)) prefs.add(name);
+        }
+        return prefs;
+    }
+
+    /**
+     * Assigns random roommates to about a third of the students, without requiring symmetry.
+     */
+    static void randomRoommates(List<UniversityStudent> students, Random r) {
+        for (UniversityStudent s : students) {
+            if (r.nextInt(3) == 0) s.setAssignedRoommate(students.get(r.nextInt(students.size())));
+        }
+    }
+
+    /**
+     * Every node and its neighbor list, in graph order.
+     */
+    static String dump(StudentGraph graph) {
+        StringBuilder out = new StringBuilder();
+        for (UniversityStudent s : graph.getAllNodes()) {
+            out.append(s.getName()).append(':');
+            for (StudentGraph.Edge e : graph.getNeighbors(s)) {
+                out.append(e.neighbor.getName()).append('/').append(e.weight).append(',');
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Same as {@link #dump} with the lines sorted, for graphs whose node order may differ.
+     */
+    static String sortedDump(StudentGraph graph) {
+        String[] lines = dump(graph).split("\n");
+        Arrays.sort(lines);
+        return String.join("\n", lines);
+    }
+
+    /**
+     * @return referral cost of a path, the sum of {@code 100 - weight} over its edges; -1 if empty
+     * @throws IllegalStateException if two consecutive students are not connected
+     */
+    static int pathCost(StudentGraph graph, List<UniversityStudent> path) {
+        if (path.isEmpty()) return -1;
+        int cost = 0;
+        for (int i = 1; i < path.size(); i++) cost += 100 - weight(graph, path.get(i - 1), path.get(i));
+        return cost;
+    }
+
+    static int weight(StudentGraph graph, UniversityStudent a, UniversityStudent b) {
+        for (StudentGraph.Edge e : graph.getNeighbors(a)) {
+            if (e.neighbor.equals(b)) return e.weight;
+        }
+        throw new IllegalStateException("No edge " + a.getName() + " - " + b.getName());
+    }
+
+    /**
+     * Records one check, printing the message if it failed.
+     */
+    static void expect(boolean ok, String message) {
+        checks++;
+        if (!ok) {
+            failures++;
+            if (failures <= 20) System.out.println("FAIL " + message);
+        }
+    }
+
+    /**
+     * Prints the totals and exits with status 1 if any check failed.
+     */
+    static void finish(String name) {
+        System.out.println(name + ": " + checks + " checks, " + failures + " failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+}
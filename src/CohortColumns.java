@@ -0,0 +1,343 @@
+import java.util.*;
+
+/**
+ * Column-oriented copy of the attributes that drive connection strength, for
+ * scoring one student against the whole cohort in tight loops over primitive
+ * arrays instead of n virtual calls that chase objects across the heap.
+ *
+ * Columns per position: age, major id, the roommate's position, and a 64-bit
+ * internship mask. While the cohort has at most 64 distinct companies the
+ * mask is exact and shared internships are a popcount. Otherwise shared
+ * internships are counted from the positions listing each company, and the
+ * mask (company id mod 64) is only a filter. A company the scoring student
+ * lists more than once counts once per listing, so each student's companies
+ * are stored with how often they were listed.
+ *
+ * Rows are copies: after a student changes, {@link #set} its row again.
+ * Positions can be set in any order and {@link #remove}d; a vacant position
+ * scores 0, which lets {@link StudentGraph} keep one row per sequence number
+ * across incremental updates.
+ */
+public class CohortColumns {
+
+    private static final int MASK_BITS = 64;
+    private static final int NO_MAJOR = -1;
+    // Major id of a vacant position, equal to no real one
+    private static final int VACANT = -2;
+
+    private UniversityStudent[] students = new UniversityStudent[0];
+    // One past the highest position ever set
+    private int size;
+    // Positions below size without a student
+    private int vacancies;
+    private int[] ages = new int[0];
+    private int[] majorIds = new int[0];
+    // Students are equal by name; next position with the same name, or -1
+    private int[] nextEqual = new int[0];
+    // First position equal to the student's roommate, or -1 when none is in the cohort
+    private int[] roommates = new int[0];
+    private String[] roommateNames = new String[0];
+    private long[] internshipMasks = new long[0];
+    // Students who list a company more than once, which popcount would undercount
+    private boolean[] duplicateInternships = new boolean[0];
+    private boolean exactMasks = true;
+    // Sorted distinct company ids per position, and how many times the student lists each
+    private int[][] companies = new int[0][];
+    private int[][] companyCounts = new int[0][];
+
+    // Cohort-local ids: majors only need to compare equal, and dense company ids keep the masks small
+    private final Map<String, Integer> localMajor = new HashMap<>();
+    private final Map<String, Integer> localCompany = new HashMap<>();
+    // Ascending positions listing each company, by local company id
+    private final List<StudentAttributeIndex.IntBucket> holders = new ArrayList<>();
+    // First position holding each name, and the positions whose roommate has that name
+    private final Map<String, Integer> firstByName = new HashMap<>();
+    private final Map<String, StudentAttributeIndex.IntBucket> roommateOf = new HashMap<>();
+
+    /**
+     * Creates empty columns; fill them with {@link #set}.
+     */
+    public CohortColumns() {
+    }
+
+    /**
+     * @param students cohort, indexed by position
+     */
+    public CohortColumns(List<UniversityStudent> students) {
+        grow(students.size());
+        for (int i = 0; i < students.size(); i++) set(i, students.get(i));
+    }
+
+    /**
+     * @return number of positions, including vacant ones
+     */
+    public int size() { return size; }
+
+    /**
+     * @return the student at that position, or null if it is vacant
+     */
+    public UniversityStudent student(int id) { return id < size ? students[id] : null; }
+
+    /**
+     * Copies a student's current attributes into a position, replacing the
+     * student there. Positions past the end are added, with any gap left vacant.
+     *
+     * @param id position to fill
+     * @param s the student
+     */
+    public void set(int id, UniversityStudent s) {
+        if (id < size && students[id] != null) remove(id);
+        grow(id + 1);
+        if (id >= size) {
+            vacancies += id - size;
+            size = id + 1;
+        } else {
+            vacancies--;
+        }
+        students[id] = s;
+        ages[id] = s.getAge();
+        String major = s.getMajor();
+        majorIds[id] = major == null ? NO_MAJOR : localMajor.computeIfAbsent(major, k -> localMajor.size());
+
+        List<String> internships = s.getPreviousInternships();
+        int[] ids = new int[internships.size()];
+        for (int k = 0; k < ids.length; k++) {
+            ids[k] = localCompany.computeIfAbsent(internships.get(k), c -> localCompany.size());
+        }
+        while (holders.size() < localCompany.size()) holders.add(new StudentAttributeIndex.IntBucket());
+        exactMasks = localCompany.size() <= MASK_BITS;
+        Arrays.sort(ids);
+        int[] times = new int[ids.length];
+        int distinct = 0;
+        for (int k = 0; k < ids.length; k++) {
+            if (k == 0 || ids[k] != ids[k - 1]) ids[distinct++] = ids[k];
+            times[distinct - 1]++;
+        }
+        duplicateInternships[id] = distinct < ids.length;
+        companies[id] = Arrays.copyOf(ids, distinct);
+        companyCounts[id] = Arrays.copyOf(times, distinct);
+        long mask = 0;
+        for (int k = 0; k < distinct; k++) {
+            mask |= 1L << (ids[k] % MASK_BITS);
+            holders.get(ids[k]).insert(id);
+        }
+        internshipMasks[id] = mask;
+
+        // Join the chain of equal names, kept in position order
+        String name = s.getName();
+        Integer head = firstByName.get(name);
+        if (head == null || id < head) {
+            nextEqual[id] = head == null ? -1 : head;
+            firstByName.put(name, id);
+            pointRoommatesAt(name, id);
+        } else {
+            int p = head;
+            while (nextEqual[p] >= 0 && nextEqual[p] < id) p = nextEqual[p];
+            nextEqual[id] = nextEqual[p];
+            nextEqual[p] = id;
+        }
+
+        UniversityStudent roommate = s.getRoommate();
+        if (roommate != null) {
+            String roommateName = roommate.getName();
+            roommateNames[id] = roommateName;
+            roommateOf.computeIfAbsent(roommateName, k -> new StudentAttributeIndex.IntBucket()).insert(id);
+            Integer position = firstByName.get(roommateName);
+            roommates[id] = position == null ? -1 : position;
+        } else {
+            roommateNames[id] = null;
+            roommates[id] = -1;
+        }
+    }
+
+    /**
+     * Vacates a position; it scores 0 until set again.
+     *
+     * @param id position to clear
+     */
+    public void remove(int id) {
+        if (id >= size || students[id] == null) return;
+        String name = students[id].getName();
+        int head = firstByName.get(name);
+        if (head == id) {
+            int next = nextEqual[id];
+            if (next < 0) firstByName.remove(name);
+            else firstByName.put(name, next);
+            pointRoommatesAt(name, next);
+        } else {
+            int p = head;
+            while (nextEqual[p] != id) p = nextEqual[p];
+            nextEqual[p] = nextEqual[id];
+        }
+        String roommateName = roommateNames[id];
+        if (roommateName != null) {
+            StudentAttributeIndex.IntBucket rows = roommateOf.get(roommateName);
+            rows.remove(id);
+            if (rows.size() == 0) roommateOf.remove(roommateName);
+        }
+        for (int c : companies[id]) holders.get(c).remove(id);
+
+        students[id] = null;
+        majorIds[id] = VACANT;
+        nextEqual[id] = -1;
+        roommates[id] = -1;
+        roommateNames[id] = null;
+        internshipMasks[id] = 0;
+        duplicateInternships[id] = false;
+        companies[id] = companyCounts[id] = new int[0];
+        vacancies++;
+    }
+
+    // Rows whose roommate has this name now find it at position, or nowhere for -1
+    private void pointRoommatesAt(String name, int position) {
+        StudentAttributeIndex.IntBucket rows = roommateOf.get(name);
+        if (rows == null) return;
+        for (int k = 0; k < rows.size(); k++) roommates[rows.get(k)] = position;
+    }
+
+    private void grow(int capacity) {
+        if (capacity <= students.length) return;
+        int n = Math.max(capacity, Math.max(16, students.length * 2));
+        int old = students.length;
+        students = Arrays.copyOf(students, n);
+        ages = Arrays.copyOf(ages, n);
+        majorIds = Arrays.copyOf(majorIds, n);
+        nextEqual = Arrays.copyOf(nextEqual, n);
+        roommates = Arrays.copyOf(roommates, n);
+        roommateNames = Arrays.copyOf(roommateNames, n);
+        internshipMasks = Arrays.copyOf(internshipMasks, n);
+        duplicateInternships = Arrays.copyOf(duplicateInternships, n);
+        companies = Arrays.copyOf(companies, n);
+        companyCounts = Arrays.copyOf(companyCounts, n);
+        for (int i = old; i < n; i++) {
+            majorIds[i] = VACANT;
+            nextEqual[i] = -1;
+            roommates[i] = -1;
+            companies[i] = companyCounts[i] = new int[0];
+        }
+    }
+
+    /**
+     * Computes {@code student(q).calculateConnectionStrength(student(j))} for every j.
+     *
+     * @param q position of the scoring student
+     * @param out receives one weight per position; length at least {@link #size()}
+     */
+    public void scoreFrom(int q, int[] out) {
+        requireStudent(q);
+        scoreFrom(q, out, 0, size);
+        clearVacant(out);
+    }
+
+    /**
+     * Computes the weight of every pair (q, j) as stored by {@link StudentGraph}:
+     * the student earlier in the cohort scores the pair. The entry for q itself is 0.
+     *
+     * @param q position of the student
+     * @param out receives one weight per position; length at least {@link #size()}
+     */
+    public void edgeWeights(int q, int[] out) {
+        requireStudent(q);
+        scoreTo(q, out, 0, q);
+        out[q] = 0;
+        scoreFrom(q, out, q + 1, size);
+        clearVacant(out);
+    }
+
+    private void requireStudent(int q) {
+        if (student(q) == null) throw new IllegalArgumentException("No student at position " + q);
+    }
+
+    private void clearVacant(int[] out) {
+        if (vacancies == 0) return;
+        for (int j = 0; j < size; j++) {
+            if (majorIds[j] == VACANT) out[j] = 0;
+        }
+    }
+
+    /**
+     * out[j] = q scoring j, for j in [from, to).
+     */
+    private void scoreFrom(int q, int[] out, int from, int to) {
+        if (from < to) requireMajor(q);
+        scoreAttributes(q, out, from, to);
+        if (duplicateInternships[q]) {
+            long mask = internshipMasks[q];
+            for (int j = from; j < to; j++) {
+                if ((internshipMasks[j] & mask) != 0) out[j] += 3 * repeatedShared(q, j);
+            }
+        }
+        // Everyone equal to q's roommate, usually a single position
+        for (int p = roommates[q]; p >= 0; p = nextEqual[p]) {
+            if (p >= from && p < to) out[p] += 4;
+        }
+    }
+
+    /**
+     * out[j] = j scoring q, for j in [from, to).
+     */
+    private void scoreTo(int q, int[] out, int from, int to) {
+        scoreAttributes(q, out, from, to);
+        int self = firstByName.get(students[q].getName());
+        long mask = internshipMasks[q];
+        for (int j = from; j < to; j++) {
+            if (majorIds[j] == NO_MAJOR) requireMajor(j);
+            out[j] += roommates[j] == self ? 4 : 0;
+            if (duplicateInternships[j] && (internshipMasks[j] & mask) != 0) out[j] += 3 * repeatedShared(j, q);
+        }
+    }
+
+    /**
+     * Age, major and shared-internship terms, counting each shared company
+     * once; the extra listings of the scoring student are added by the callers.
+     */
+    private void scoreAttributes(int q, int[] out, int from, int to) {
+        int age = ages[q];
+        int major = majorIds[q];
+        long mask = internshipMasks[q];
+        for (int j = from; j < to; j++) {
+            out[j] = (ages[j] == age ? 1 : 0) + (majorIds[j] == major ? 2 : 0);
+        }
+        if (exactMasks) {
+            for (int j = from; j < to; j++) {
+                out[j] += 3 * Long.bitCount(internshipMasks[j] & mask);
+            }
+        } else {
+            for (int c : companies[q]) {
+                StudentAttributeIndex.IntBucket rows = holders.get(c);
+                for (int k = rows.firstGreaterThan(from - 1); k < rows.size(); k++) {
+                    int j = rows.get(k);
+                    if (j >= to) break;
+                    out[j] += 3;
+                }
+            }
+        }
+    }
+
+    // The scoring student needs a major, as in calculateConnectionStrength
+    private void requireMajor(int id) {
+        if (majorIds[id] == NO_MAJOR) throw new NullPointerException("Student " + students[id].getName() + " has no major");
+    }
+
+    /**
+     * Listings of a's shared companies beyond the first, which a scores on top
+     * of {@link #scoreAttributes}.
+     */
+    private int repeatedShared(int a, int b) {
+        int[] mine = companies[a];
+        int[] counts = companyCounts[a];
+        int[] theirs = companies[b];
+        int count = 0;
+        int i = 0, k = 0;
+        while (i < mine.length && k < theirs.length) {
+            if (mine[i] < theirs[k]) i++;
+            else if (mine[i] > theirs[k]) k++;
+            else {
+                count += counts[i] - 1;
+                i++;
+                k++;
+            }
+        }
+        return count;
+    }
+}
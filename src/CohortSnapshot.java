@@ -0,0 +1,426 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Binary snapshot of a parsed cohort, and optionally its graph and roommate
+ * assignment, for restarts that skip parsing and graph building.
+ *
+ * Layout, little-endian, after a 48-byte header (magic, version, flags,
+ * counts, CRC32 of everything after the header):
+ * <ul>
+ *   <li>string dictionary: int offsets[strings + 1], then UTF-8 bytes; every
+ *       name, gender, major, preference and company is stored once, and a
+ *       null string is stored as id -1</li>
+ *   <li>student table as columns of string ids and numbers, with preference
+ *       and internship lists as offset + pool arrays</li>
+ *   <li>adjacency, if present: int offsets[n + 1], targets[edges], weights[edges]</li>
+ *   <li>roommates, if present: int partner id per student, -1 for none</li>
+ * </ul>
+ * Loading maps the file and reads the columns in place; the only work is one
+ * String per dictionary entry and the objects the rest of the code needs. The
+ * stored graph goes straight from the mapped adjacency into a
+ * {@link CompactStudentGraph}. Files are limited to 2GB, the most one mapping
+ * can hold.
+ */
+public class CohortSnapshot {
+
+    private static final int MAGIC = 0x534E484C; // "LHNS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 48;
+    private static final int FLAG_GRAPH = 1;
+    private static final int FLAG_ROOMMATES = 2;
+    private static final int WRITE_BUFFER = 1 << 20;
+    private static final long MAX_SIZE = Integer.MAX_VALUE;
+
+    private final ByteBuffer data;
+    private final int flags;
+    private final int studentCount;
+    private final int stringCount;
+    private final int prefTotal;
+    private final int internshipTotal;
+    private final int edgeTotal;
+    // Section offsets within data, derived from the counts
+    private final int stringOffsets;
+    private final int stringBytes;
+    private final int studentColumns;
+    private final int gpaColumn;
+    private final int prefStarts;
+    private final int prefPool;
+    private final int internshipStarts;
+    private final int internshipPool;
+    private final int adjacency;
+    private final int roommates;
+
+    private List<UniversityStudent> students;
+    private CompactStudentGraph compact;
+    private StudentGraph graph;
+
+    private CohortSnapshot(ByteBuffer data) throws IOException {
+        this.data = data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.capacity() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+            throw new IOException("Not a cohort snapshot");
+        }
+        if (data.getInt(4) != VERSION) throw new IOException("Unsupported snapshot version " + data.getInt(4));
+        flags = data.getInt(8);
+        if ((flags & ~(FLAG_GRAPH | FLAG_ROOMMATES)) != 0) throw new IOException("Unknown snapshot flags " + flags);
+        studentCount = data.getInt(12);
+        stringCount = data.getInt(16);
+        prefTotal = data.getInt(32);
+        internshipTotal = data.getInt(36);
+        edgeTotal = data.getInt(40);
+        int stringByteCount = data.getInt(44);
+        if (data.getLong(24) != data.capacity() - HEADER_SIZE) throw new IOException("Snapshot is truncated");
+
+        CRC32 crc = new CRC32();
+        crc.update(data.duplicate().position(HEADER_SIZE));
+        if ((int) crc.getValue() != data.getInt(20)) throw new IOException("Snapshot checksum mismatch");
+
+        // The header is not covered by the checksum, so its counts must add up to the payload
+        if ((studentCount | stringCount | prefTotal | internshipTotal | edgeTotal | stringByteCount) < 0) {
+            throw new IOException("Snapshot header has a negative count");
+        }
+        long n = studentCount;
+        long[] sections = new long[11];
+        sections[0] = HEADER_SIZE;
+        sections[1] = sections[0] + 4L * (stringCount + 1L);
+        sections[2] = sections[1] + stringByteCount;
+        sections[3] = sections[2] + 4L * 5 * n;
+        sections[4] = sections[3] + 8L * n;
+        sections[5] = sections[4] + 4L * (n + 1);
+        sections[6] = sections[5] + 4L * prefTotal;
+        sections[7] = sections[6] + 4L * (n + 1);
+        sections[8] = sections[7] + 4L * internshipTotal;
+        sections[9] = sections[8] + (hasGraph() ? 4L * (n + 1 + 2L * edgeTotal) : 0);
+        sections[10] = sections[9] + (hasRoommates() ? 4L * n : 0);
+        if (sections[10] != data.capacity()) throw new IOException("Snapshot header does not match its payload");
+        stringOffsets = (int) sections[0];
+        stringBytes = (int) sections[1];
+        studentColumns = (int) sections[2];
+        gpaColumn = (int) sections[3];
+        prefStarts = (int) sections[4];
+        prefPool = (int) sections[5];
+        internshipStarts = (int) sections[6];
+        internshipPool = (int) sections[7];
+        adjacency = (int) sections[8];
+        roommates = (int) sections[9];
+    }
+
+    /**
+     * Maps a snapshot file and checks its header and checksum.
+     *
+     * @param file snapshot written by {@link #write}
+     * @return the loaded snapshot
+     * @throws IOException if the file cannot be read, is not a snapshot, or is corrupt
+     */
+    public static CohortSnapshot load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > MAX_SIZE) throw new IOException("Snapshot larger than 2GB");
+            return new CohortSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return number of students
+     */
+    public int studentCount() { return studentCount; }
+
+    /**
+     * @return true if the snapshot holds graph edges
+     */
+    public boolean hasGraph() { return (flags & FLAG_GRAPH) != 0; }
+
+    /**
+     * @return true if the snapshot holds a roommate assignment
+     */
+    public boolean hasRoommates() { return (flags & FLAG_ROOMMATES) != 0; }
+
+    /**
+     * Builds the students once, in their original order. Roommates are assigned
+     * if the snapshot holds them.
+     *
+     * @return the students, shared between calls
+     */
+    public synchronized List<UniversityStudent> students() {
+        if (students != null) return students;
+        String[] strings = new String[stringCount];
+        byte[] bytes = new byte[0];
+        for (int i = 0; i < stringCount; i++) {
+            int from = data.getInt(stringOffsets + 4 * i);
+            int length = data.getInt(stringOffsets + 4 * (i + 1)) - from;
+            if (bytes.length < length) bytes = new byte[Math.max(length, bytes.length * 2)];
+            data.get(stringBytes + from, bytes, 0, length);
+            strings[i] = new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int n = studentCount;
+        List<UniversityStudent> result = new ArrayList<>(n);
+        AttributeDictionary dictionary = new AttributeDictionary();
+        for (int i = 0; i < n; i++) {
+            result.add(new UniversityStudent(string(strings, column(0, i)), column(1, i),
+                    string(strings, column(2, i)), column(3, i), string(strings, column(4, i)),
+                    data.getDouble(gpaColumn + 8 * i),
+                    names(strings, prefStarts, prefPool, i), names(strings, internshipStarts, internshipPool, i),
+                    dictionary));
+        }
+        if (hasRoommates()) {
+            for (int i = 0; i < n; i++) {
+                int partner = data.getInt(roommates + 4 * i);
+                if (partner >= 0) result.get(i).setAssignedRoommate(result.get(partner));
+            }
+        }
+        students = Collections.unmodifiableList(result);
+        return students;
+    }
+
+    /**
+     * Builds the stored graph once, straight from the mapped adjacency, with ids
+     * that are positions in {@link #students()}. No pairs are scored.
+     *
+     * @return the CSR graph as it was written, shared between calls
+     * @throws IllegalStateException if the snapshot has no graph
+     */
+    public synchronized CompactStudentGraph compactGraph() {
+        if (!hasGraph()) throw new IllegalStateException("Snapshot was written without a graph");
+        if (compact != null) return compact;
+        int n = studentCount;
+        compact = CompactStudentGraph.fromAdjacency(students(), ints(adjacency, n + 1),
+                ints(adjacency + 4 * (n + 1), edgeTotal), ints(adjacency + 4 * (n + 1 + edgeTotal), edgeTotal));
+        return compact;
+    }
+
+    /**
+     * Builds the stored graph once as an updatable {@link StudentGraph}, from
+     * {@link #compactGraph()} rather than the file.
+     *
+     * @return the graph as it was written, shared between calls like {@link #students()}
+     * @throws IllegalStateException if the snapshot has no graph
+     */
+    public synchronized StudentGraph graph() {
+        if (graph == null) graph = StudentGraph.fromCompact(compactGraph());
+        return graph;
+    }
+
+    /**
+     * @return int k of the student's row in the five-column student table
+     */
+    private int column(int k, int student) {
+        return data.getInt(studentColumns + 4 * (k * studentCount + student));
+    }
+
+    /**
+     * @return view of count ints starting at the byte offset, read in place
+     */
+    private IntBuffer ints(int offset, int count) {
+        return data.duplicate().order(ByteOrder.LITTLE_ENDIAN).position(offset).limit(offset + 4 * count)
+                .slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    /**
+     * Reads one student's list from an offset + pool pair of sections.
+     */
+    private List<String> names(String[] strings, int starts, int pool, int student) {
+        int from = data.getInt(starts + 4 * student);
+        int to = data.getInt(starts + 4 * (student + 1));
+        List<String> result = new ArrayList<>(to - from);
+        for (int k = from; k < to; k++) result.add(string(strings, data.getInt(pool + 4 * k)));
+        return result;
+    }
+
+    private static String string(String[] strings, int id) {
+        return id < 0 ? null : strings[id];
+    }
+
+    /**
+     * Writes a snapshot to a temporary file in the same directory, then moves it
+     * over the target once it is complete, atomically where the file system
+     * supports it. Concurrent writers each use their own temporary file, and the
+     * last one to finish wins. On failure the file is left as it was.
+     *
+     * @param file destination
+     * @param students the cohort, in the order ids are assigned
+     * @param graph graph over those students, or null to store only the table
+     * @param includeRoommates whether to store each student's assigned roommate
+     * @throws IOException if the file cannot be written or would be larger than 2GB
+     * @throws IllegalArgumentException if the graph has an edge to a student not in the list
+     */
+    public static void write(Path file, List<UniversityStudent> students, StudentGraph graph,
+                             boolean includeRoommates) throws IOException {
+        int n = students.size();
+        Map<UniversityStudent, Integer> ids = new HashMap<>();
+        for (int i = 0; i < n; i++) ids.put(students.get(i), i);
+
+        Map<String, Integer> stringIds = new HashMap<>();
+        List<byte[]> strings = new ArrayList<>();
+        int[] columns = new int[5 * n];
+        int[] prefOffsets = new int[n + 1];
+        int[] internshipOffsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            UniversityStudent s = students.get(i);
+            prefOffsets[i + 1] = prefOffsets[i] + s.getRoommatePreferences().size();
+            internshipOffsets[i + 1] = internshipOffsets[i] + s.getPreviousInternships().size();
+        }
+        int[] prefIds = new int[prefOffsets[n]];
+        int[] internshipIds = new int[internshipOffsets[n]];
+        for (int i = 0; i < n; i++) {
+            UniversityStudent s = students.get(i);
+            columns[i] = intern(s.getName(), stringIds, strings);
+            columns[n + i] = s.getAge();
+            columns[2 * n + i] = intern(s.getGender(), stringIds, strings);
+            columns[3 * n + i] = s.getYear();
+            columns[4 * n + i] = intern(s.getMajor(), stringIds, strings);
+            int p = prefOffsets[i];
+            for (String pref : s.getRoommatePreferences()) prefIds[p++] = intern(pref, stringIds, strings);
+            int c = internshipOffsets[i];
+            for (String company : s.getPreviousInternships()) internshipIds[c++] = intern(company, stringIds, strings);
+        }
+
+        // A unique temporary file next to the target, so concurrent writers never share one
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        boolean moved = false;
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                SectionWriter out = new SectionWriter(channel);
+                int offset = 0;
+                for (byte[] bytes : strings) {
+                    out.putInt(offset);
+                    offset += bytes.length;
+                }
+                out.putInt(offset);
+                for (byte[] bytes : strings) out.putBytes(bytes);
+                for (int v : columns) out.putInt(v);
+                for (UniversityStudent s : students) out.putDouble(s.getGpa());
+                for (int v : prefOffsets) out.putInt(v);
+                for (int v : prefIds) out.putInt(v);
+                for (int v : internshipOffsets) out.putInt(v);
+                for (int v : internshipIds) out.putInt(v);
+
+                int edges = 0;
+                if (graph != null) {
+                    List<List<StudentGraph.Edge>> rows = new ArrayList<>(n);
+                    for (UniversityStudent s : students) {
+                        List<StudentGraph.Edge> row = graph.getNeighbors(s);
+                        rows.add(row);
+                        out.putInt(edges);
+                        edges += row.size();
+                    }
+                    out.putInt(edges);
+                    for (List<StudentGraph.Edge> row : rows) {
+                        for (StudentGraph.Edge e : row) {
+                            Integer target = ids.get(e.neighbor);
+                            if (target == null) {
+                                throw new IllegalArgumentException("Graph edge to student not in cohort: " + e.neighbor.getName());
+                            }
+                            out.putInt(target);
+                        }
+                    }
+                    for (List<StudentGraph.Edge> row : rows) {
+                        for (StudentGraph.Edge e : row) out.putInt(e.weight);
+                    }
+                }
+                if (includeRoommates) {
+                    for (UniversityStudent s : students) {
+                        Integer partner = s.getRoommate() == null ? null : ids.get(s.getRoommate());
+                        out.putInt(partner == null ? -1 : partner);
+                    }
+                }
+                long payload = out.finish();
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.putInt(MAGIC).putInt(VERSION)
+                      .putInt((graph != null ? FLAG_GRAPH : 0) | (includeRoommates ? FLAG_ROOMMATES : 0))
+                      .putInt(n).putInt(strings.size()).putInt((int) out.crc.getValue()).putLong(payload)
+                      .putInt(prefIds.length).putInt(internshipIds.length).putInt(edges).putInt(offset);
+                header.flip();
+                while (header.hasRemaining()) channel.write(header, header.position());
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                // Still a whole file replacing a whole file, just not in one step
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+            moved = true;
+        } finally {
+            if (!moved) deleteQuietly(temp);
+        }
+    }
+
+    /**
+     * Removes a partial file; a failure here must not hide the one being thrown.
+     */
+    private static void deleteQuietly(Path temp) {
+        try {
+            Files.deleteIfExists(temp);
+        } catch (IOException ignored) {
+            // Only a stray temporary file is left behind
+        }
+    }
+
+    private static int intern(String value, Map<String, Integer> ids, List<byte[]> strings) {
+        if (value == null) return -1;
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = strings.size();
+            ids.put(value, id);
+            strings.add(value.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * Buffers the payload after the header and keeps its running checksum.
+     */
+    private static class SectionWriter {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER).order(ByteOrder.LITTLE_ENDIAN);
+        final CRC32 crc = new CRC32();
+        long position = HEADER_SIZE;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void putInt(int v) throws IOException {
+            if (buffer.remaining() < 4) drain();
+            buffer.putInt(v);
+        }
+
+        void putDouble(double v) throws IOException {
+            if (buffer.remaining() < 8) drain();
+            buffer.putDouble(v);
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            for (int from = 0; from < bytes.length; ) {
+                if (!buffer.hasRemaining()) drain();
+                int length = Math.min(buffer.remaining(), bytes.length - from);
+                buffer.put(bytes, from, length);
+                from += length;
+            }
+        }
+
+        /**
+         * @return payload length in bytes
+         */
+        long finish() throws IOException {
+            drain();
+            return position - HEADER_SIZE;
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            if (position + buffer.remaining() > MAX_SIZE) throw new IOException("Snapshot larger than 2GB");
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) position += channel.write(buffer, position);
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,696 @@
+import java.nio.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Read-only compressed sparse row (CSR) copy of a {@link StudentGraph}.
+ * Each student gets a dense int id; the neighbors of id {@code i} are the
+ * edge slots {@code firstEdge(i)} up to {@code endEdge(i)}, in the same order
+ * as {@link StudentGraph#getNeighbors}. Reading neighbors never allocates.
+ * Also indexes internships both ways: company id to holders, and student id
+ * to its sorted company ids.
+ *
+ * Can be copied from a {@link StudentGraph} or scored straight from a student
+ * list with {@link #build}, which never creates Edge objects or an adjacency map.
+ *
+ * Rows are ranges of shared pools rather than back to back, so a graph update
+ * can derive the next version with {@link #patch}: rewritten rows are appended
+ * past the pools' high-water mark, where no published version reads, and every
+ * other row is shared. Only the version whose pools end at that mark appends
+ * in place; patching any other version copies the pools first. Once built, an
+ * instance's own rows never change.
+ */
+public class CompactStudentGraph {
+
+    // A patch gives up, so the caller rebuilds, once a pool holds this many times its live slots
+    private static final int MAX_WASTE = 2;
+    private static final int MIN_POOL_SLACK = 1024;
+
+    private final UniversityStudent[] students;
+    // Open-addressing table of student ids by hash, -1 for a free slot
+    private final int[] idTable;
+    // Edge slots of id i are rowStarts[i] up to rowEnds[i]
+    private final int[] rowStarts;
+    private final int[] rowEnds;
+    private final int[] targets;
+    // Weights fit in a byte for any realistic cohort; the int array is only used otherwise.
+    private final byte[] smallWeights;
+    private final int[] weights;
+    private final int edgeEnd;
+    private final int edgeCount;
+    // High-water mark of the edge pool, shared by every version appending to the same arrays
+    private final int[] edgeHighWater;
+
+    private final Map<String, Integer> companyIds;
+    // Sorted distinct company ids of each student, and ascending holder ids of each company
+    private final RowPool companies;
+    private final RowPool holders;
+    private final int companySlots;
+
+    /**
+     * Copies the graph into CSR arrays. Ids follow {@link StudentGraph#getAllNodes()} order.
+     *
+     * @param graph graph to copy
+     */
+    public CompactStudentGraph(StudentGraph graph) {
+        this(copyRows(graph));
+    }
+
+    /**
+     * Scores a cohort straight into CSR arrays, finding candidate pairs through a
+     * {@link StudentAttributeIndex} as the bucketed build does. Edges, weights and
+     * neighbor order match {@code new StudentGraph(students)}; ids are positions
+     * in the list.
+     *
+     * @param students the cohort, with distinct names
+     * @return CSR graph over the students
+     */
+    public static CompactStudentGraph build(List<UniversityStudent> students) {
+        UniversityStudent[] array = students.toArray(new UniversityStudent[0]);
+        int n = array.length;
+
+        // Pass 1: the upper triangle, row i holding its neighbors j > i in ascending order
+        StudentAttributeIndex index = new StudentAttributeIndex(students);
+        StudentAttributeIndex.IntBucket candidates = new StudentAttributeIndex.IntBucket();
+        StudentAttributeIndex.IntBucket upperTargets = new StudentAttributeIndex.IntBucket();
+        StudentAttributeIndex.IntBucket upperWeights = new StudentAttributeIndex.IntBucket();
+        int[] upperOffsets = new int[n + 1];
+        int[] lowerCounts = new int[n];
+        int[] marks = new int[n];
+        Arrays.fill(marks, -1);
+        int maxWeight = 0;
+        for (int i = 0; i < n; i++) {
+            index.candidatesAfter(i, array[i], marks, i, candidates);
+            for (int k = 0; k < candidates.size(); k++) {
+                int j = candidates.get(k);
+                int weight = array[i].calculateConnectionStrength(array[j]);
+                if (weight > 0) {
+                    upperTargets.add(j);
+                    upperWeights.add(weight);
+                    lowerCounts[j]++;
+                    maxWeight = Math.max(maxWeight, weight);
+                }
+            }
+            upperOffsets[i + 1] = upperTargets.size();
+        }
+
+        // Pass 2: each row is its lower neighbors, filled in ascending order from
+        // earlier rows, followed by its own upper neighbors
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + lowerCounts[i] + upperOffsets[i + 1] - upperOffsets[i];
+        }
+        Rows rows = new Rows(array, RowPool.packed(offsets, maxWeight));
+        int[] lowerFill = Arrays.copyOf(offsets, n);
+        for (int i = 0; i < n; i++) {
+            int e = offsets[i] + lowerCounts[i];
+            for (int k = upperOffsets[i]; k < upperOffsets[i + 1]; k++) {
+                int j = upperTargets.get(k);
+                rows.edges.set(e++, j, upperWeights.get(k));
+                rows.edges.set(lowerFill[j]++, i, upperWeights.get(k));
+            }
+        }
+        return new CompactStudentGraph(rows);
+    }
+
+    /**
+     * Wraps precomputed adjacency, such as the columns of a mapped
+     * {@link CohortSnapshot}, without scoring any pairs or creating Edge objects.
+     * Targets are copied from the buffer in one bulk read. Ids are positions in
+     * the list, and neighbor lists keep the given order.
+     *
+     * @param students students, indexed by id
+     * @param offsets edges of student i are at positions offsets[i] to offsets[i + 1]
+     * @param targets neighbor id of each edge
+     * @param weights connection strength of each edge
+     * @return CSR graph with exactly those edges
+     * @throws IllegalArgumentException if the buffers do not describe a graph over the students
+     */
+    public static CompactStudentGraph fromAdjacency(List<UniversityStudent> students, IntBuffer offsets,
+                                                    IntBuffer targets, IntBuffer weights) {
+        int n = students.size();
+        int edges = targets.remaining();
+        if (offsets.remaining() != n + 1 || weights.remaining() != edges) {
+            throw new IllegalArgumentException("Adjacency buffers do not match " + n + " students");
+        }
+        int[] rowOffsets = new int[n + 1];
+        offsets.duplicate().get(rowOffsets);
+        if (rowOffsets[0] != 0 || rowOffsets[n] != edges) {
+            throw new IllegalArgumentException("Adjacency offsets do not cover " + edges + " edges");
+        }
+        for (int i = 0; i < n; i++) {
+            if (rowOffsets[i + 1] < rowOffsets[i]) throw new IllegalArgumentException("Offsets decrease at student " + i);
+        }
+        int base = weights.position();
+        int maxWeight = 0;
+        for (int e = 0; e < edges; e++) maxWeight = Math.max(maxWeight, weights.get(base + e));
+
+        Rows rows = new Rows(students.toArray(new UniversityStudent[0]), RowPool.packed(rowOffsets, maxWeight));
+        int[] values = rows.edges.values;
+        targets.duplicate().get(values, 0, edges);
+        for (int e = 0; e < edges; e++) {
+            if (values[e] < 0 || values[e] >= n) {
+                throw new IllegalArgumentException("Edge " + e + " points to unknown student " + values[e]);
+            }
+            rows.edges.set(e, values[e], weights.get(base + e));
+        }
+        return new CompactStudentGraph(rows);
+    }
+
+    private static Rows copyRows(StudentGraph graph) {
+        List<UniversityStudent> nodes = graph.getAllNodes();
+        int n = nodes.size();
+        UniversityStudent[] array = nodes.toArray(new UniversityStudent[0]);
+
+        int[] offsets = new int[n + 1];
+        int maxWeight = 0;
+        for (int i = 0; i < n; i++) {
+            List<StudentGraph.Edge> row = graph.getNeighbors(array[i]);
+            offsets[i + 1] = offsets[i] + row.size();
+            for (StudentGraph.Edge e : row) maxWeight = Math.max(maxWeight, e.weight);
+        }
+
+        Rows rows = new Rows(array, RowPool.packed(offsets, maxWeight));
+        for (int i = 0; i < n; i++) {
+            int e = offsets[i];
+            for (StudentGraph.Edge edge : graph.getNeighbors(array[i])) {
+                rows.edges.set(e++, lookup(rows.idTable, array, edge.neighbor), edge.weight);
+            }
+        }
+        return rows;
+    }
+
+    private CompactStudentGraph(Rows rows) {
+        students = rows.students;
+        idTable = rows.idTable;
+        rowStarts = rows.edges.starts;
+        rowEnds = rows.edges.ends;
+        targets = rows.edges.values;
+        smallWeights = rows.edges.smallWeights;
+        weights = rows.edges.weights;
+        edgeEnd = rows.edges.end;
+        edgeCount = rows.edges.end;
+        edgeHighWater = rows.edges.highWater;
+        int n = students.length;
+
+        // Student -> sorted distinct company ids
+        companyIds = new HashMap<>();
+        int[] companyOffsets = new int[n + 1];
+        int[][] perStudent = new int[n][];
+        for (int i = 0; i < n; i++) {
+            perStudent[i] = companyIdsOf(students[i], companyIds);
+            companyOffsets[i + 1] = companyOffsets[i] + perStudent[i].length;
+        }
+        companies = RowPool.packed(companyOffsets, -1);
+        int[] holderOffsets = new int[companyIds.size() + 1];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(perStudent[i], 0, companies.values, companyOffsets[i], perStudent[i].length);
+            for (int c : perStudent[i]) holderOffsets[c + 1]++;
+        }
+
+        // Company -> holder ids, ascending
+        for (int c = 0; c < companyIds.size(); c++) holderOffsets[c + 1] += holderOffsets[c];
+        holders = RowPool.packed(holderOffsets, -1);
+        int[] fill = Arrays.copyOf(holderOffsets, companyIds.size());
+        for (int i = 0; i < n; i++) {
+            for (int k = companyOffsets[i]; k < companyOffsets[i + 1]; k++) {
+                holders.values[fill[companies.values[k]]++] = i;
+            }
+        }
+        companySlots = companyOffsets[n];
+    }
+
+    private CompactStudentGraph(UniversityStudent[] students, int[] idTable, RowPool edges, int edgeCount,
+                                Map<String, Integer> companyIds, RowPool companies, RowPool holders,
+                                int companySlots) {
+        this.students = students;
+        this.idTable = idTable;
+        this.rowStarts = edges.starts;
+        this.rowEnds = edges.ends;
+        this.targets = edges.values;
+        this.smallWeights = edges.smallWeights;
+        this.weights = edges.weights;
+        this.edgeEnd = edges.end;
+        this.edgeCount = edgeCount;
+        this.edgeHighWater = edges.highWater;
+        this.companyIds = companyIds;
+        this.companies = companies;
+        this.holders = holders;
+        this.companySlots = companySlots;
+    }
+
+    /**
+     * Derives the graph after one update of its {@link StudentGraph}, rewriting only
+     * the rows that changed. A removed student's id is taken over by the student
+     * with the last id; added students get ids at the end.
+     *
+     * Everything is checked before anything is written, so a null result leaves the
+     * pools untouched. Patching an instance that was already patched copies the
+     * pools rather than overwrite the other version's rows. Patches of one lineage
+     * must not run concurrently; {@link StudentGraph} calls this from its writer.
+     *
+     * @param changed new neighbor lists of the students whose rows changed, including added students
+     * @param removed the student removed by the update, or null
+     * @param rows neighbor list of any student after the update
+     * @return the patched graph, or null if a rebuild is cheaper or needed
+     */
+    CompactStudentGraph patch(Map<UniversityStudent, List<StudentGraph.Edge>> changed, UniversityStudent removed,
+                              Function<UniversityStudent, List<StudentGraph.Edge>> rows) {
+        int n = students.length;
+        int removedId = removed == null ? -1 : idOf(removed);
+        if (removed != null && removedId < 0) return null;
+        int last = n - 1;
+        UniversityStudent moved = removedId >= 0 && removedId != last ? students[last] : null;
+
+        List<UniversityStudent> added = new ArrayList<>();
+        for (UniversityStudent s : changed.keySet()) {
+            if (idOf(s) < 0) added.add(s);
+        }
+        int kept = removedId >= 0 ? n - 1 : n;
+        int size = kept + added.size();
+
+        // Ids: the last student fills the removed id, added students go at the end,
+        // and a replacement object takes over its namesake's id
+        UniversityStudent[] nextStudents = Arrays.copyOf(students, Math.max(n, size));
+        if (moved != null) nextStudents[removedId] = moved;
+        for (int k = 0; k < added.size(); k++) nextStudents[kept + k] = added.get(k);
+        nextStudents = Arrays.copyOf(nextStudents, size);
+        for (UniversityStudent s : changed.keySet()) {
+            int id = idOf(s);
+            if (id >= 0 && !s.equals(removed)) nextStudents[id == last && moved != null ? removedId : id] = s;
+        }
+
+        int[] table = idTable;
+        if (removedId >= 0 || !added.isEmpty()) {
+            if (2L * size > idTable.length) {
+                table = hashIds(nextStudents);
+            } else {
+                table = idTable.clone();
+                if (removedId >= 0) {
+                    deleteId(table, students, removed);
+                    if (moved != null) table[slotOf(table, students, moved)] = removedId;
+                }
+                for (int k = 0; k < added.size(); k++) insertId(table, nextStudents, kept + k);
+            }
+        }
+
+        // Rows to rewrite: every changed row, plus the moved student's and its
+        // neighbors', whose edges must point at its new id
+        Map<UniversityStudent, List<StudentGraph.Edge>> rewrite = new LinkedHashMap<>();
+        for (Map.Entry<UniversityStudent, List<StudentGraph.Edge>> e : changed.entrySet()) {
+            if (!e.getKey().equals(removed)) rewrite.put(e.getKey(), e.getValue());
+        }
+        if (moved != null) {
+            List<StudentGraph.Edge> row = changed.containsKey(moved) ? changed.get(moved) : rows.apply(moved);
+            rewrite.putIfAbsent(moved, row);
+            for (StudentGraph.Edge e : row) {
+                UniversityStudent other = e.neighbor;
+                rewrite.computeIfAbsent(other, k -> changed.containsKey(other) ? changed.get(other) : rows.apply(other));
+            }
+        }
+
+        long live = edgeCount - (removedId >= 0 ? rowEnds[removedId] - rowStarts[removedId] : 0);
+        long appended = 0;
+        for (Map.Entry<UniversityStudent, List<StudentGraph.Edge>> e : rewrite.entrySet()) {
+            int old = idOf(e.getKey());
+            if (old >= 0) live -= rowEnds[old] - rowStarts[old];
+            live += e.getValue().size();
+            appended += e.getValue().size();
+            for (StudentGraph.Edge edge : e.getValue()) {
+                if (smallWeights != null && edge.weight > 0xFF) return null;
+                if (lookup(table, nextStudents, edge.neighbor) < 0) return null;
+            }
+        }
+        if (tooWasteful(edgeEnd + appended, live)) return null;
+
+        // Company index: re-encode students whose companies changed, then rebuild
+        // the holder lists of every company they, the removed or the moved student hold
+        Map<String, Integer> nextCompanyIds = companyIds;
+        Set<Integer> affected = new HashSet<>();
+        if (removedId >= 0) addCompanies(affected, removedId);
+        if (moved != null) addCompanies(affected, last);
+        long nextCompanySlots = companySlots - (removedId >= 0 ? companies.length(removedId) : 0);
+        long companiesAppended = 0;
+        Map<Integer, int[]> owned = new LinkedHashMap<>();
+        for (UniversityStudent s : changed.keySet()) {
+            if (s.equals(removed)) continue;
+            if (nextCompanyIds == companyIds && hasNewCompany(s)) nextCompanyIds = new HashMap<>(companyIds);
+            int[] ids = companyIdsOf(s, nextCompanyIds);
+            int old = idOf(s);
+            if (old >= 0 && companies.rowEquals(old, ids)) continue;
+            owned.put(lookup(table, nextStudents, s), ids);
+            for (int c : ids) affected.add(c);
+            if (old >= 0) {
+                addCompanies(affected, old);
+                nextCompanySlots -= companies.length(old);
+            }
+            nextCompanySlots += ids.length;
+            companiesAppended += ids.length;
+        }
+
+        Map<Integer, int[]> holderRows = new LinkedHashMap<>();
+        long holdersAppended = 0;
+        StudentAttributeIndex.IntBucket list = new StudentAttributeIndex.IntBucket();
+        for (int c : affected) {
+            list.clear();
+            if (c < holders.rowCount()) {
+                for (int k = holders.starts[c]; k < holders.ends[c]; k++) {
+                    int h = holders.values[k];
+                    int id = h == removedId ? -1 : (moved != null && h == last ? removedId : h);
+                    if (id >= 0 && !owned.containsKey(id)) list.add(id);
+                }
+            }
+            for (Map.Entry<Integer, int[]> e : owned.entrySet()) {
+                if (Arrays.binarySearch(e.getValue(), c) >= 0) list.add(e.getKey());
+            }
+            list.sort();
+            int[] row = new int[list.size()];
+            for (int k = 0; k < row.length; k++) row[k] = list.get(k);
+            holderRows.put(c, row);
+            holdersAppended += row.length;
+        }
+        if (tooWasteful(companies.end + companiesAppended, nextCompanySlots)
+                || tooWasteful(holders.end + holdersAppended, nextCompanySlots)) {
+            return null;
+        }
+
+        // Nothing can fail from here on
+        RowPool edges = new RowPool(rowStarts, rowEnds, targets, smallWeights, weights, edgeEnd, edgeHighWater)
+                .resized(size);
+        for (Map.Entry<UniversityStudent, List<StudentGraph.Edge>> e : rewrite.entrySet()) {
+            int slot = edges.append(lookup(table, nextStudents, e.getKey()), e.getValue().size());
+            for (StudentGraph.Edge edge : e.getValue()) {
+                edges.set(slot++, lookup(table, nextStudents, edge.neighbor), edge.weight);
+            }
+        }
+        RowPool nextCompanies = companies.resized(size);
+        if (moved != null) {
+            nextCompanies.starts[removedId] = companies.starts[last];
+            nextCompanies.ends[removedId] = companies.ends[last];
+        }
+        for (Map.Entry<Integer, int[]> e : owned.entrySet()) {
+            int slot = nextCompanies.append(e.getKey(), e.getValue().length);
+            System.arraycopy(e.getValue(), 0, nextCompanies.values, slot, e.getValue().length);
+        }
+        RowPool nextHolders = holders.resized(nextCompanyIds.size());
+        for (Map.Entry<Integer, int[]> e : holderRows.entrySet()) {
+            int slot = nextHolders.append(e.getKey(), e.getValue().length);
+            System.arraycopy(e.getValue(), 0, nextHolders.values, slot, e.getValue().length);
+        }
+        edges.publish();
+        nextCompanies.publish();
+        nextHolders.publish();
+
+        return new CompactStudentGraph(nextStudents, table, edges, (int) live, nextCompanyIds,
+                nextCompanies, nextHolders, (int) nextCompanySlots);
+    }
+
+    private static boolean tooWasteful(long poolEnd, long live) {
+        return poolEnd > Integer.MAX_VALUE - 8 || poolEnd > MAX_WASTE * live + MIN_POOL_SLACK;
+    }
+
+    private void addCompanies(Set<Integer> out, int id) {
+        for (int k = companies.starts[id]; k < companies.ends[id]; k++) out.add(companies.values[k]);
+    }
+
+    private boolean hasNewCompany(UniversityStudent s) {
+        for (String internship : s.getPreviousInternships()) {
+            if (!companyIds.containsKey(internship)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the student's sorted distinct company ids, assigning new ids in {@code ids} as needed
+     */
+    private static int[] companyIdsOf(UniversityStudent s, Map<String, Integer> ids) {
+        List<String> internships = s.getPreviousInternships();
+        int[] owned = new int[internships.size()];
+        for (int k = 0; k < owned.length; k++) {
+            owned[k] = ids.computeIfAbsent(internships.get(k), key -> ids.size());
+        }
+        Arrays.sort(owned);
+        int distinct = 0;
+        for (int k = 0; k < owned.length; k++) {
+            if (k == 0 || owned[k] != owned[k - 1]) owned[distinct++] = owned[k];
+        }
+        return Arrays.copyOf(owned, distinct);
+    }
+
+    /**
+     * @return number of students
+     */
+    public int size() { return students.length; }
+
+    /**
+     * @return number of directed edge slots (twice the number of connections)
+     */
+    public int edgeCount() { return edgeCount; }
+
+    /**
+     * @param id student id
+     * @return the student with that id
+     */
+    public UniversityStudent student(int id) { return students[id]; }
+
+    /**
+     * @param student a student
+     * @return the student's id, or -1 if it is not in the graph
+     */
+    public int idOf(UniversityStudent student) {
+        return student == null ? -1 : lookup(idTable, students, student);
+    }
+
+    /**
+     * @return index of the first edge slot of the student
+     */
+    public int firstEdge(int id) { return rowStarts[id]; }
+
+    /**
+     * @return index one past the last edge slot of the student
+     */
+    public int endEdge(int id) { return rowEnds[id]; }
+
+    /**
+     * @return number of neighbors of the student
+     */
+    public int degree(int id) { return rowEnds[id] - rowStarts[id]; }
+
+    /**
+     * @param edge an edge slot
+     * @return id of the neighbor at that slot
+     */
+    public int target(int edge) { return targets[edge]; }
+
+    /**
+     * @param edge an edge slot
+     * @return connection strength at that slot
+     */
+    public int weight(int edge) {
+        return smallWeights != null ? smallWeights[edge] & 0xFF : weights[edge];
+    }
+
+    /**
+     * @param internship company name
+     * @return the company's id, or -1 if no student has interned there
+     */
+    public int companyId(String internship) {
+        Integer id = companyIds.get(internship);
+        return id == null || holders.length(id) == 0 ? -1 : id;
+    }
+
+    /**
+     * @return number of students who interned at the company
+     */
+    public int holderCount(int company) { return holders.length(company); }
+
+    /**
+     * @return id of the k-th holder of the company, in ascending id order
+     */
+    public int holder(int company, int k) { return holders.values[holders.starts[company] + k]; }
+
+    /**
+     * @param id student id
+     * @param company company id
+     * @return true if the student interned at the company
+     */
+    public boolean hasInternship(int id, int company) {
+        return Arrays.binarySearch(companies.values, companies.starts[id], companies.ends[id], company) >= 0;
+    }
+
+    /**
+     * Builds the id table at under half load; for equal students the first id wins.
+     */
+    private static int[] hashIds(UniversityStudent[] students) {
+        int[] table = new int[Integer.highestOneBit(Math.max(2, 2 * students.length) - 1) << 1];
+        Arrays.fill(table, -1);
+        for (int i = 0; i < students.length; i++) insertId(table, students, i);
+        return table;
+    }
+
+    private static void insertId(int[] table, UniversityStudent[] students, int id) {
+        int mask = table.length - 1;
+        int slot = slot(students[id], mask);
+        while (table[slot] >= 0 && !students[table[slot]].equals(students[id])) slot = (slot + 1) & mask;
+        if (table[slot] < 0) table[slot] = id;
+    }
+
+    /**
+     * Removes a student, shifting later entries of its probe run back so lookups
+     * never stop early at the freed slot.
+     */
+    private static void deleteId(int[] table, UniversityStudent[] students, UniversityStudent student) {
+        int mask = table.length - 1;
+        int free = slotOf(table, students, student);
+        for (int next = (free + 1) & mask; table[next] >= 0; next = (next + 1) & mask) {
+            int home = slot(students[table[next]], mask);
+            // Move the entry back unless its home lies cyclically in (free, next]
+            boolean stays = free <= next ? free < home && home <= next : free < home || home <= next;
+            if (!stays) {
+                table[free] = table[next];
+                free = next;
+            }
+        }
+        table[free] = -1;
+    }
+
+    private static int slotOf(int[] table, UniversityStudent[] students, UniversityStudent student) {
+        int mask = table.length - 1;
+        int slot = slot(student, mask);
+        while (!students[table[slot]].equals(student)) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static int lookup(int[] table, UniversityStudent[] students, UniversityStudent student) {
+        int mask = table.length - 1;
+        for (int slot = slot(student, mask); table[slot] >= 0; slot = (slot + 1) & mask) {
+            if (students[table[slot]].equals(student)) return table[slot];
+        }
+        return -1;
+    }
+
+    private static int slot(UniversityStudent student, int mask) {
+        int h = student.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * Students, their id table and edge rows under construction.
+     */
+    private static class Rows {
+        final UniversityStudent[] students;
+        final int[] idTable;
+        final RowPool edges;
+
+        Rows(UniversityStudent[] students, RowPool edges) {
+            this.students = students;
+            this.idTable = hashIds(students);
+            this.edges = edges;
+        }
+    }
+
+    /**
+     * Rows of ints kept as ranges of one pool, optionally with a weight per slot
+     * stored as bytes when they all fit. Once published a pool is only appended
+     * to, past its high-water mark: the largest end any version sharing the
+     * arrays has published. A version whose end is below the mark has been
+     * patched already, so appending for it copies the arrays first.
+     */
+    private static class RowPool {
+        int[] starts;
+        int[] ends;
+        int[] values;
+        byte[] smallWeights;
+        int[] weights;
+        int end;
+        // One-element holder shared by every version over these arrays
+        int[] highWater;
+        // True once this version has checked the mark, or owns fresh arrays
+        private boolean claimed;
+
+        RowPool(int[] starts, int[] ends, int[] values, byte[] smallWeights, int[] weights, int end,
+                int[] highWater) {
+            this.starts = starts;
+            this.ends = ends;
+            this.values = values;
+            this.smallWeights = smallWeights;
+            this.weights = weights;
+            this.end = end;
+            this.highWater = highWater;
+        }
+
+        /**
+         * Rows laid out back to back, row i at offsets[i] up to offsets[i + 1].
+         *
+         * @param maxWeight largest weight to be stored, or -1 for no weights
+         */
+        static RowPool packed(int[] offsets, int maxWeight) {
+            int n = offsets.length - 1;
+            int slots = offsets[n];
+            return new RowPool(Arrays.copyOf(offsets, n), Arrays.copyOfRange(offsets, 1, n + 1), new int[slots],
+                    maxWeight >= 0 && maxWeight <= 0xFF ? new byte[slots] : null,
+                    maxWeight > 0xFF ? new int[slots] : null, slots, new int[]{slots});
+        }
+
+        int rowCount() { return starts.length; }
+
+        int length(int row) { return ends[row] - starts[row]; }
+
+        boolean rowEquals(int row, int[] other) {
+            return Arrays.equals(values, starts[row], ends[row], other, 0, other.length);
+        }
+
+        /**
+         * @return a copy with rowCount rows sharing this pool; added rows are empty
+         */
+        RowPool resized(int rowCount) {
+            return new RowPool(Arrays.copyOf(starts, rowCount), Arrays.copyOf(ends, rowCount),
+                    values, smallWeights, weights, end, highWater);
+        }
+
+        /**
+         * Points a row at a new range at the end of the pool, growing it if needed.
+         * The first append copies the arrays if another version has appended past
+         * this one's end.
+         *
+         * @return first slot of the range
+         */
+        int append(int row, int length) {
+            if (!claimed) {
+                if (highWater[0] != end) grow(end + length);
+                claimed = true;
+            }
+            int need = end + length;
+            if (need > values.length) grow(need);
+            starts[row] = end;
+            ends[row] = need;
+            end = need;
+            return need - length;
+        }
+
+        /**
+         * Moves this version to private arrays with room for at least {@code need} slots.
+         */
+        private void grow(int need) {
+            int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(need, values.length * 3L / 2 + 16));
+            values = Arrays.copyOf(values, capacity);
+            if (smallWeights != null) smallWeights = Arrays.copyOf(smallWeights, capacity);
+            if (weights != null) weights = Arrays.copyOf(weights, capacity);
+            highWater = new int[]{end};
+        }
+
+        /**
+         * Raises the high-water mark to this version's end, once its rows are all
+         * written. A version that appended nothing leaves the mark alone.
+         */
+        void publish() {
+            if (claimed) highWater[0] = end;
+        }
+
+        void set(int slot, int value, int weight) {
+            values[slot] = value;
+            if (smallWeights != null) smallWeights[slot] = (byte) weight;
+            else if (weights != null) weights[slot] = weight;
+        }
+    }
+}
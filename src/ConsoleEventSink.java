@@ -0,0 +1,22 @@
+/**
+ * Synchronous sink that prints straight to System.out, useful for debugging
+ * because each line appears before write returns. It looks up System.out on
+ * every call, so output redirected with System.setOut follows along.
+ */
+public class ConsoleEventSink implements EventSink {
+
+    @Override
+    public void write(String text) {
+        System.out.print(text);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
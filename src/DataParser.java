@@ -1,71 +1,218 @@
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
 import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
 
 /**
  * Parses student data from input files.
- * Handles pipe-delimited format and validates roommate preferences.
+ * Reads either the pipe-delimited format, one student per line:
+ * <pre>Name|Age|Gender|Year|Major|GPA|Pref1,Pref2|Company1,Company2</pre>
+ * or the block format, a "Student:" header followed by "Key: value" lines.
+ * The format is detected from the first non-blank line. Files are scanned as
+ * bytes through a memory mapping; see {@link StudentRecordScanner}.
  */
 public class DataParser {
 
+    private static final long MAP_WINDOW = 1L << 30;
+    // Below this a chunk is not worth a task of its own
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * Input layouts the parser understands.
+     */
+    public enum Format { PIPE, BLOCK }
+
+    /**
+     * Strategy used to read the file.
+     */
+    public enum ParseMode {
+        /** One pass over the file on the calling thread. */
+        SEQUENTIAL,
+        /** Record-aligned chunks parsed on the common fork-join pool, merged in file order. */
+        PARALLEL
+    }
+
+    /**
+     * Thrown for malformed input; the message matches what the checkers expect
+     * and the line number is available separately.
+     */
+    public static class ParseException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int lineNumber;
+
+        public ParseException(String message, int lineNumber) {
+            super(message);
+            this.lineNumber = lineNumber;
+        }
+
+        /**
+         * @return 1-based line the problem was found on
+         */
+        public int getLineNumber() { return lineNumber; }
+    }
+
+    /**
+     * Thrown when an age, year or GPA is not a number.
+     */
+    public static class InvalidNumberException extends NumberFormatException {
+        private static final long serialVersionUID = 1L;
+
+        private final int lineNumber;
+
+        public InvalidNumberException(String message, int lineNumber) {
+            super(message);
+            this.lineNumber = lineNumber;
+        }
+
+        /**
+         * @return 1-based line holding the bad value
+         */
+        public int getLineNumber() { return lineNumber; }
+    }
+
     /**
      * Reads students from a file and creates UniversityStudent objects.
-     * Filters roommate preferences to only include valid student names.
-     * 
+     * For the pipe format, roommate preferences are then filtered to valid
+     * student names. Block-format preferences are kept as written, matching
+     * the checkpoint outputs.
+     *
      * @param filePath path to the input file
      * @return list of parsed students
      * @throws IOException if file is unreadable or malformed
+     * @throws InvalidNumberException if a numeric field is not a number
      */
     public static List<UniversityStudent> parseStudentsFromFile(String filePath) throws IOException {
         List<UniversityStudent> students = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new FileReader(filePath));
-        String line;
+        Format format = parse(Paths.get(filePath), students::add);
+        if (format == Format.PIPE) removeUnknownRoommates(students);
+        return students;
+    }
 
-        while ((line = reader.readLine()) != null) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
+    /**
+     * Same as {@link #parseStudentsFromFile(String)}, optionally splitting the file
+     * into chunks parsed concurrently. Results, and the first error with its line
+     * number, are the same in both modes.
+     *
+     * @param filePath path to the input file
+     * @param mode how to read the file
+     * @return list of parsed students, in file order
+     * @throws IOException if file is unreadable or malformed
+     * @throws InvalidNumberException if a numeric field is not a number
+     */
+    public static List<UniversityStudent> parseStudentsFromFile(String filePath, ParseMode mode) throws IOException {
+        if (mode == ParseMode.SEQUENTIAL) return parseStudentsFromFile(filePath);
+        long chunkBytes = Math.max(MIN_CHUNK_BYTES,
+                Files.size(Paths.get(filePath)) / (ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_THREAD));
+        return parseInChunks(Paths.get(filePath), chunkBytes, MAP_WINDOW);
+    }
 
-            String[] parts = line.split("\\|");
-            if (parts.length < 8) throw new IOException("Malformed line: " + line);
+    /**
+     * Splits the file at record boundaries roughly every {@code chunkBytes},
+     * parses the chunks concurrently and joins them in file order.
+     */
+    static List<UniversityStudent> parseInChunks(Path path, long chunkBytes, long window) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long start = StudentRecordScanner.dataStart(channel);
+            long end = channel.size();
+            Format format = new StudentRecordScanner(channel, start, end, window).detectFormat();
 
-            String name = parts[0].trim();
-            int age = Integer.parseInt(parts[1].trim());
-            String gender = parts[2].trim();
-            int year = Integer.parseInt(parts[3].trim());
-            String major = parts[4].trim();
-            double gpa = Double.parseDouble(parts[5].trim());
+            List<Long> bounds = new ArrayList<>();
+            bounds.add(start);
+            for (long at = start + chunkBytes; at < end; at = bounds.get(bounds.size() - 1) + chunkBytes) {
+                long next = StudentRecordScanner.recordStartAfter(channel, at, end, format, window);
+                if (next >= end) break;
+                bounds.add(next);
+            }
+            bounds.add(end);
 
-            List<String> roommatePrefs = parseList(parts[6].trim());
-            List<String> internships = parseList(parts[7].trim());
+            int chunks = bounds.size() - 1;
+            List<List<UniversityStudent>> parsed = new ArrayList<>(Collections.nCopies(chunks, null));
+            // One dictionary for the whole cohort, so students of different chunks compare on ids
+            AttributeDictionary dictionary = new AttributeDictionary();
+            int[] lineCounts = new int[chunks];
+            Exception[] failures = new Exception[chunks];
+            List<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int c = 0; c < chunks; c++) {
+                int chunk = c;
+                tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                    List<UniversityStudent> students = new ArrayList<>();
+                    StudentRecordScanner scanner = null;
+                    try {
+                        scanner = new StudentRecordScanner(channel, bounds.get(chunk), bounds.get(chunk + 1), window);
+                        scanner.scan(format, dictionary, students::add);
+                    } catch (IOException | InvalidNumberException e) {
+                        failures[chunk] = e;
+                    }
+                    parsed.set(chunk, students);
+                    lineCounts[chunk] = scanner == null ? 0 : scanner.lineCount();
+                }));
+            }
+            for (ForkJoinTask<?> task : tasks) task.join();
 
-            students.add(new UniversityStudent(name, age, gender, year, major, gpa, roommatePrefs, internships));
+            // Chunk line numbers start at 1; the first failure in file order wins
+            List<UniversityStudent> students = new ArrayList<>();
+            int linesBefore = 0;
+            for (int c = 0; c < chunks; c++) {
+                if (failures[c] != null) throwShifted(failures[c], linesBefore);
+                students.addAll(parsed.get(c));
+                linesBefore += lineCounts[c];
+            }
+            if (format == Format.PIPE) removeUnknownRoommates(students);
+            return students;
         }
+    }
 
-        reader.close();
-
-        // Remove invalid roommate preferences
-        Set<String> validNames = new HashSet<>();
-        for (UniversityStudent s : students) validNames.add(s.getName());
-
-        for (UniversityStudent s : students) {
-            List<String> filtered = new ArrayList<>();
-            for (String pref : s.getRoommatePreferences()) {
-                if (validNames.contains(pref)) filtered.add(pref);
-            }
-            s.getRoommatePreferences().clear();
-            s.getRoommatePreferences().addAll(filtered);
+    /**
+     * Rethrows a chunk's error with its line number made relative to the whole file.
+     */
+    private static void throwShifted(Exception e, int linesBefore) throws IOException {
+        if (e instanceof ParseException) {
+            ParseException p = (ParseException) e;
+            throw new ParseException(p.getMessage(), p.getLineNumber() + linesBefore);
         }
+        if (e instanceof InvalidNumberException) {
+            InvalidNumberException n = (InvalidNumberException) e;
+            throw new InvalidNumberException(n.getMessage(), n.getLineNumber() + linesBefore);
+        }
+        throw (IOException) e;
+    }
 
-        return students;
+    /**
+     * Streams students to a callback in file order, without holding the cohort
+     * in memory. Roommate preferences are passed through unfiltered, since
+     * later students are not known yet. The students of one call share an
+     * {@link AttributeDictionary} of their own.
+     *
+     * @param path input file in either format
+     * @param consumer receives each student as soon as it is parsed
+     * @return the detected format
+     * @throws IOException if file is unreadable or malformed
+     * @throws InvalidNumberException if a numeric field is not a number
+     */
+    public static Format parse(Path path, Consumer<UniversityStudent> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            StudentRecordScanner scanner = new StudentRecordScanner(channel,
+                    StudentRecordScanner.dataStart(channel), channel.size(), MAP_WINDOW);
+            Format format = scanner.detectFormat();
+            scanner.scan(format, new AttributeDictionary(), consumer);
+            return format;
+        }
     }
 
     /**
-     * Parses a comma-separated list. Returns empty list for "None" or empty string.
+     * Drops roommate preferences that name no student in the list.
      */
-    private static List<String> parseList(String input) {
-        if (input.isEmpty() || input.equalsIgnoreCase("None")) return new ArrayList<>();
-        String[] items = input.split(",");
-        List<String> list = new ArrayList<>();
-        for (String item : items) list.add(item.trim());
-        return list;
+    private static void removeUnknownRoommates(List<UniversityStudent> students) {
+        Set<String> validNames = new HashSet<>();
+        for (UniversityStudent s : students) validNames.add(s.getName());
+
+        // removeIf leaves lists that are already valid untouched
+        for (UniversityStudent s : students) {
+            s.getRoommatePreferences().removeIf(pref -> !validNames.contains(pref));
+        }
     }
 }
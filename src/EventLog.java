@@ -0,0 +1,37 @@
+/**
+ * Holds the {@link EventSink} that simulation output goes to. It defaults
+ * to a {@link ConsoleEventSink}, so output looks the same as plain println
+ * until another sink is installed.
+ */
+public class EventLog {
+
+    private static volatile EventSink sink = new ConsoleEventSink();
+
+    /**
+     * @return the sink currently in use
+     */
+    public static EventSink sink() {
+        return sink;
+    }
+
+    /**
+     * Installs a new sink. The old one is flushed but not closed.
+     *
+     * @param newSink sink to use from now on
+     * @return the sink that was replaced
+     */
+    public static EventSink setSink(EventSink newSink) {
+        if (newSink == null) throw new IllegalArgumentException("Event sink must not be null");
+        EventSink previous = sink;
+        sink = newSink;
+        previous.flush();
+        return previous;
+    }
+
+    /**
+     * Writes one line to the current sink.
+     */
+    public static void println(String line) {
+        sink.writeLine(line);
+    }
+}
@@ -0,0 +1,33 @@
+/**
+ * Destination for the text the simulation reports: chat lines, friend
+ * requests, graph dumps and pod reports. See {@link EventLog} for the
+ * sink currently in use.
+ */
+public interface EventSink {
+
+    /**
+     * Writes text as-is. It should end with a line separator. The text
+     * stays together in the output even when other threads write at the
+     * same time.
+     *
+     * @param text one or more complete lines
+     */
+    void write(String text);
+
+    /**
+     * Writes one line followed by the platform line separator.
+     */
+    default void writeLine(String line) {
+        write(line + System.lineSeparator());
+    }
+
+    /**
+     * Blocks until everything written so far has reached the destination.
+     */
+    void flush();
+
+    /**
+     * Flushes and releases the destination. Later writes are ignored.
+     */
+    void close();
+}
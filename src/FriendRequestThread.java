@@ -16,6 +16,13 @@ public class FriendRequestThread implements Runnable {
      */
     @Override
     public void run() {
-        System.out.println(sender.name + " sent a friend request to " + receiver.name);
+        EventLog.println(line(sender, receiver));
+    }
+
+    /**
+     * @return the console line for a friend request
+     */
+    static String line(UniversityStudent sender, UniversityStudent receiver) {
+        return sender.name + " sent a friend request to " + receiver.name;
     }
 }
@@ -3,9 +3,21 @@ import java.util.*;
 /**
  * Implements Gale-Shapley algorithm for stable roommate matching.
  * Students propose to their preferences in order until stable matches are found.
+ * Preferences are translated once into int ids with O(1) rank lookups, and the
+ * proposal loop runs entirely on primitive arrays.
  */
 public class GaleShapley {
 
+    /**
+     * Matching algorithm used to assign roommates.
+     */
+    public enum MatchingMode {
+        /** Proposer-only Gale-Shapley; always produces a matching. */
+        GALE_SHAPLEY,
+        /** Irving's stable roommates; guarantees stability or reports that none exists. */
+        IRVING
+    }
+
     /**
      * Assigns roommates using stable matching algorithm.
      * Updates each student's assignedRoommate field.
@@ -13,67 +25,202 @@ public class GaleShapley {
      * @param students list of students to match
      */
     public static void setAssignedRoommate(List<UniversityStudent> students) {
-        // Map student name -> student object for quick lookup
-        Map<String, UniversityStudent> nameMap = new HashMap<>();
-        for (UniversityStudent s : students) {
-            s.setAssignedRoommate(null); // Clear previous assignments
-            nameMap.put(s.getName(), s);
+        setAssignedRoommate(students, MatchingMode.GALE_SHAPLEY);
+    }
+
+    /**
+     * Assigns roommates with the chosen algorithm.
+     * Updates each student's assignedRoommate field; if Irving's algorithm finds
+     * no stable matching, every assignment is cleared.
+     *
+     * @param students list of students to match
+     * @param mode matching algorithm
+     * @return false if the mode is IRVING and no stable matching exists
+     */
+    public static boolean setAssignedRoommate(List<UniversityStudent> students, MatchingMode mode) {
+        RoommatePreferences prefs = new RoommatePreferences(students);
+        if (mode == MatchingMode.IRVING) {
+            StableRoommates.Result result = StableRoommates.solve(prefs);
+            for (int id = 0; id < prefs.size(); id++) {
+                int partner = result.partner(id);
+                prefs.student(id).setAssignedRoommate(partner < 0 ? null : prefs.student(partner));
+            }
+            return result.isStable();
         }
 
+        // Write results back once, clearing previous assignments
+        match(prefs).writeBack();
+        return true;
+    }
+
+    /**
+     * Runs the proposal loop over translated preferences.
+     *
+     * @param prefs translated preference lists
+     * @return the matching, with the state needed for {@link #rematch}
+     */
+    public static RoommateMatching match(RoommatePreferences prefs) {
+        RoommateMatching matching = new RoommateMatching(prefs);
+
         // Queue of free students who still want a roommate
-        Queue<UniversityStudent> freeStudents = new LinkedList<>();
-        for (UniversityStudent s : students) {
-            if (!s.getRoommatePreferences().isEmpty()) {
-                freeStudents.add(s);
+        IntQueue freeStudents = new IntQueue(prefs.size());
+        for (int id = 0; id < prefs.size(); id++) {
+            if (!prefs.student(id).getRoommatePreferences().isEmpty()) {
+                freeStudents.add(id);
+            }
+        }
+
+        propose(matching, freeStudents, null, Integer.MAX_VALUE);
+        return matching;
+    }
+
+    /**
+     * Updates a previous matching after some students edited their roommate preferences.
+     * The edited students and their former roommates are freed and propose again
+     * from the top of their lists. Whenever a student is freed, everyone who lists
+     * them moves their next proposal back to that student, and those still without
+     * a roommate propose again, so no unmatched student is left with a free student
+     * further down their list. Only students along that chain take part. If the edits
+     * free more than a quarter of the cohort, or the chain grows past the length of all
+     * lists combined, the matching is rebuilt from scratch with {@link #match} instead.
+     * Students whose roommate changed get their assignedRoommate field updated.
+     *
+     * @param matching matching to update in place
+     * @param changed students whose preference lists changed
+     * @return students whose roommate changed, in the order they were first affected
+     */
+    public static List<UniversityStudent> rematch(RoommateMatching matching, Collection<UniversityStudent> changed) {
+        RoommatePreferences prefs = matching.prefs;
+        int[] partner = matching.partner;
+        Map<Integer, Integer> before = new LinkedHashMap<>();
+        IntQueue freeStudents = new IntQueue(changed.size() * 2);
+
+        List<Integer> freed = new ArrayList<>();
+        for (UniversityStudent s : changed) {
+            int id = prefs.idOf(s.getName());
+            if (id < 0) continue;
+            prefs.update(id);
+
+            int former = partner[id];
+            before.putIfAbsent(id, former);
+            partner[id] = -1;
+            matching.nextProposal[id] = 0;
+            freeStudents.add(id);
+            freed.add(id);
+            if (former >= 0) {
+                before.putIfAbsent(former, id);
+                partner[former] = -1;
+                matching.nextProposal[former] = 0;
+                freeStudents.add(former);
+                freed.add(former);
+            }
+        }
+        // After every list is re-read, so ranks reflect the edits
+        for (int id : freed) release(matching, freeStudents, id);
+
+        if (freed.size() * 4 > prefs.size() || !propose(matching, freeStudents, before, prefs.totalLength())) {
+            // The edits reach too much of the cohort; a full run costs about the same
+            int[] original = partner.clone();
+            for (Map.Entry<Integer, Integer> entry : before.entrySet()) original[entry.getKey()] = entry.getValue();
+            RoommateMatching fresh = match(prefs);
+            System.arraycopy(fresh.partner, 0, partner, 0, partner.length);
+            System.arraycopy(fresh.nextProposal, 0, matching.nextProposal, 0, partner.length);
+            List<UniversityStudent> diff = new ArrayList<>();
+            for (int id = 0; id < partner.length; id++) {
+                if (partner[id] != original[id]) {
+                    matching.writeBack(id);
+                    diff.add(prefs.student(id));
+                }
             }
+            return diff;
         }
 
-        // Track the index of next roommate to propose to for each student
-        Map<UniversityStudent, Integer> nextProposalIndex = new HashMap<>();
-        for (UniversityStudent s : students) {
-            nextProposalIndex.put(s, 0);
+        List<UniversityStudent> diff = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> entry : before.entrySet()) {
+            int id = entry.getKey();
+            if (partner[id] != entry.getValue()) {
+                matching.writeBack(id);
+                diff.add(prefs.student(id));
+            }
         }
+        return diff;
+    }
+
+    /**
+     * Proposal loop shared by full and incremental matching.
+     *
+     * @param before if not null, receives the original partner of every student whose
+     *        partner changes, and students freed along the way are released
+     * @param budget most proposals to make
+     * @return false if the budget ran out before every free student was done
+     */
+    private static boolean propose(RoommateMatching matching, IntQueue freeStudents, Map<Integer, Integer> before,
+                                   int budget) {
+        RoommatePreferences prefs = matching.prefs;
+        int[] partner = matching.partner;
+        // Index of next roommate to propose to for each student
+        int[] nextProposal = matching.nextProposal;
 
         while (!freeStudents.isEmpty()) {
-            UniversityStudent proposer = freeStudents.poll();
-            
+            int proposer = freeStudents.poll();
+
             // Skip if proposer is already paired (important for reciprocal matching)
-            if (proposer.getRoommate() != null) {
-                continue;
-            }
-            
-            List<String> prefs = proposer.getRoommatePreferences();
-            int idx = nextProposalIndex.get(proposer);
+            if (partner[proposer] != -1) continue;
 
-            if (idx >= prefs.size()) {
+            int idx = nextProposal[proposer];
+            if (idx >= prefs.listLength(proposer)) {
                 // No one left to propose to
                 continue;
             }
+            if (budget-- == 0) return false;
+
+            int proposee = prefs.choice(proposer, idx);
+            nextProposal[proposer] = idx + 1; // Move to next preference next time
 
-            String prefName = prefs.get(idx);
-            nextProposalIndex.put(proposer, idx + 1); // Move to next preference next time
-            UniversityStudent proposee = nameMap.get(prefName);
+            if (before != null) {
+                before.putIfAbsent(proposer, partner[proposer]);
+                before.putIfAbsent(proposee, partner[proposee]);
+                if (partner[proposee] != -1) before.putIfAbsent(partner[proposee], proposee);
+            }
 
-            if (proposee.getRoommate() == null) {
+            if (partner[proposee] == -1) {
                 // Proposee is free — accept proposal
-                proposer.setAssignedRoommate(proposee);
-                proposee.setAssignedRoommate(proposer);
+                partner[proposer] = proposee;
+                partner[proposee] = proposer;
             } else {
-                UniversityStudent current = proposee.getRoommate();
+                int current = partner[proposee];
 
                 // Decide if proposee prefers new proposer over current
-                if (prefers(proposee, proposer, current)) {
+                if (prefers(prefs, proposee, proposer, current)) {
                     // Swap: new proposer gets accepted, current goes back to free
-                    current.setAssignedRoommate(null);
-                    proposer.setAssignedRoommate(proposee);
-                    proposee.setAssignedRoommate(proposer);
+                    partner[current] = -1;
+                    partner[proposer] = proposee;
+                    partner[proposee] = proposer;
                     freeStudents.add(current);
+                    if (before != null) release(matching, freeStudents, current);
                 } else {
                     // Proposer remains free, will try next preference later
                     freeStudents.add(proposer);
                 }
             }
         }
+        return true;
+    }
+
+    /**
+     * Moves everyone who lists a newly free student back to them, queueing
+     * those without a roommate to propose again.
+     */
+    private static void release(RoommateMatching matching, IntQueue freeStudents, int freed) {
+        RoommatePreferences prefs = matching.prefs;
+        for (int k = prefs.listerCount(freed) - 1; k >= 0; k--) {
+            int lister = prefs.lister(freed, k);
+            int rank = prefs.rank(lister, freed);
+            if (rank < matching.nextProposal[lister]) {
+                matching.nextProposal[lister] = rank;
+                if (matching.partner[lister] == -1) freeStudents.add(lister);
+            }
+        }
     }
 
     /**
@@ -81,10 +228,41 @@ public class GaleShapley {
      * 
      * @return true if newProposer appears earlier in preference list
      */
-    private static boolean prefers(UniversityStudent proposee, UniversityStudent newProposer, UniversityStudent current) {
-        List<String> prefs = proposee.getRoommatePreferences();
-        int newIndex = prefs.indexOf(newProposer.getName());
-        int currentIndex = prefs.indexOf(current.getName());
+    private static boolean prefers(RoommatePreferences prefs, int proposee, int newProposer, int current) {
+        int newIndex = prefs.rank(proposee, newProposer);
+        int currentIndex = prefs.rank(proposee, current);
         return newIndex != -1 && (currentIndex == -1 || newIndex < currentIndex);
     }
-}
\ No newline at end of file
+
+    /**
+     * Growable FIFO ring buffer of ints.
+     */
+    private static class IntQueue {
+        private int[] items;
+        private int head;
+        private int size;
+
+        IntQueue(int capacity) {
+            items = new int[Math.max(16, capacity)];
+        }
+
+        boolean isEmpty() { return size == 0; }
+
+        void add(int value) {
+            if (size == items.length) {
+                int[] grown = new int[items.length * 2];
+                for (int i = 0; i < size; i++) grown[i] = items[(head + i) % items.length];
+                items = grown;
+                head = 0;
+            }
+            items[(head + size++) % items.length] = value;
+        }
+
+        int poll() {
+            int value = items[head];
+            head = (head + 1) % items.length;
+            size--;
+            return value;
+        }
+    }
+}
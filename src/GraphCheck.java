@@ -0,0 +1,483 @@
+import java.util.*;
+
+/**
+ * Checks graph construction against the all-pairs reference loop in every
+ * build mode, on dense and sparse cohorts, including parallel builds that
+ * run at the same time, both ways of producing the CSR form, and random
+ * sequences of add, remove and update with the patched CSR compared to a
+ * fresh one, including patches of a version that was already patched. Also checks the dictionary-encoded connection scoring against
+ * the original list-based formula while students are edited in place,
+ * including students encoded with different dictionaries, and the columnar
+ * batch scoring against it.
+ */
+public class GraphCheck {
+
+    public static void main(String[] args) {
+        run();
+        CheckSupport.finish("GraphCheck");
+    }
+
+    static void run() {
+        checkBuildModes();
+        checkParallelReuse();
+        checkCompactForms();
+        checkUpdates();
+        checkRepatch();
+        checkScoring();
+        checkColumns();
+    }
+
+    /**
+     * The original constructor loop: each pair scored once by the earlier student.
+     */
+    static String referenceDump(List<UniversityStudent> students) {
+        Map<UniversityStudent, List<StudentGraph.Edge>> adj = new LinkedHashMap<>();
+        for (UniversityStudent s : students) adj.put(s, new ArrayList<>());
+        for (int i = 0; i < students.size(); i++) {
+            for (int j = i + 1; j < students.size(); j++) {
+                int weight = students.get(i).calculateConnectionStrength(students.get(j));
+                if (weight > 0) {
+                    adj.get(students.get(i)).add(new StudentGraph.Edge(students.get(j), weight));
+                    adj.get(students.get(j)).add(new StudentGraph.Edge(students.get(i), weight));
+                }
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<UniversityStudent, List<StudentGraph.Edge>> e : adj.entrySet()) {
+            out.append(e.getKey().getName()).append(':');
+            for (StudentGraph.Edge edge : e.getValue()) {
+                out.append(edge.neighbor.getName()).append('/').append(edge.weight).append(',');
+            }
+            out.append('\n');
+        }
+        String[] lines = out.toString().split("\n");
+        Arrays.sort(lines);
+        return String.join("\n", lines);
+    }
+
+    private static void checkBuildModes() {
+        for (int seed = 0; seed < 8; seed++) {
+            int n = new int[]{1, 5, 60, 400}[seed % 4];
+            List<UniversityStudent> students = seed % 2 == 0 ? CheckSupport.cohort(n, seed) : CheckSupport.sparse(n * 5, seed);
+            CheckSupport.randomRoommates(students, new Random(seed));
+            String expected = referenceDump(students);
+            for (StudentGraph.BuildMode mode : StudentGraph.BuildMode.values()) {
+                StudentGraph graph = new StudentGraph(students, mode);
+                CheckSupport.expect(CheckSupport.sortedDump(graph).equals(expected),
+                        "build mode " + mode + " differs, seed " + seed);
+                CheckSupport.expect(CheckSupport.dump(graph).equals(CheckSupport.dump(new StudentGraph(students))),
+                        "build mode " + mode + " changes neighbor order, seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * Parallel builds running at the same time share the common pool's workers,
+     * so each must still see only its own scratch rows.
+     */
+    private static void checkParallelReuse() {
+        List<UniversityStudent> dense = CheckSupport.cohort(900, 11);
+        List<UniversityStudent> sparse = CheckSupport.sparse(3000, 12);
+        String denseDump = CheckSupport.dump(new StudentGraph(dense));
+        String sparseDump = CheckSupport.dump(new StudentGraph(sparse));
+        List<Thread> builders = new ArrayList<>();
+        boolean[] same = new boolean[6];
+        for (int t = 0; t < same.length; t++) {
+            int slot = t;
+            builders.add(new Thread(() -> {
+                List<UniversityStudent> students = slot % 2 == 0 ? dense : sparse;
+                String dump = CheckSupport.dump(new StudentGraph(students, StudentGraph.BuildMode.PARALLEL));
+                same[slot] = dump.equals(slot % 2 == 0 ? denseDump : sparseDump);
+            }));
+        }
+        for (Thread t : builders) t.start();
+        for (Thread t : builders) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        for (int t = 0; t < same.length; t++) CheckSupport.expect(same[t], "concurrent parallel build " + t + " differs");
+    }
+
+    private static void checkCompactForms() {
+        for (int seed = 0; seed < 6; seed++) {
+            List<UniversityStudent> students = seed % 2 == 0 ? CheckSupport.cohort(500 + seed, seed) : CheckSupport.sparse(3000, seed);
+            CheckSupport.randomRoommates(students, new Random(seed));
+            StudentGraph graph = new StudentGraph(students);
+            CompactStudentGraph copied = graph.compact();
+            CompactStudentGraph built = CompactStudentGraph.build(students);
+            CheckSupport.expect(copied == graph.compact(), "compact() not cached, seed " + seed);
+            CheckSupport.expect(built.edgeCount() == copied.edgeCount(), "edge counts differ, seed " + seed);
+            for (int i = 0; i < students.size(); i++) {
+                UniversityStudent s = students.get(i);
+                List<StudentGraph.Edge> edges = graph.getNeighbors(s);
+                CheckSupport.expect(built.student(i) == s && built.idOf(s) == i, "build() ids not in list order");
+                int id = copied.idOf(s);
+                boolean same = copied.student(id) == s && copied.degree(id) == edges.size() && built.degree(i) == edges.size();
+                for (int k = 0; same && k < edges.size(); k++) {
+                    StudentGraph.Edge edge = edges.get(k);
+                    int e = copied.firstEdge(id) + k;
+                    int b = built.firstEdge(i) + k;
+                    same = copied.student(copied.target(e)) == edge.neighbor && copied.weight(e) == edge.weight
+                            && built.student(built.target(b)) == edge.neighbor && built.weight(b) == edge.weight;
+                }
+                CheckSupport.expect(same, "CSR row of " + s.getName() + " differs, seed " + seed);
+            }
+            checkCompanies(copied, students, seed);
+        }
+    }
+
+    /**
+     * Holder lists and membership tests of the CSR form against the students' internship lists.
+     */
+    private static void checkCompanies(CompactStudentGraph g, List<UniversityStudent> students, int seed) {
+        Set<String> companies = new TreeSet<>(Arrays.asList(CheckSupport.COMPANIES));
+        for (UniversityStudent s : students) companies.addAll(s.getPreviousInternships());
+        CheckSupport.expect(g.companyId("Nobody Holds This") == -1, "unheld company has an id, seed " + seed);
+        for (String c : companies) {
+            int company = g.companyId(c);
+            List<Integer> expected = new ArrayList<>();
+            for (int id = 0; id < g.size(); id++) {
+                if (g.student(id).getPreviousInternships().contains(c)) expected.add(id);
+            }
+            List<Integer> holders = new ArrayList<>();
+            boolean member = true;
+            for (int k = 0; company >= 0 && k < g.holderCount(company); k++) holders.add(g.holder(company, k));
+            for (int id = 0; company >= 0 && id < g.size(); id++) member &= g.hasInternship(id, company) == expected.contains(id);
+            CheckSupport.expect(holders.equals(expected) && member && (company >= 0) == !expected.isEmpty(),
+                    "holders of " + c + " differ, seed " + seed);
+        }
+    }
+
+    private static void checkUpdates() {
+        for (long seed = 1; seed <= 30; seed++) {
+            Random r = new Random(seed);
+            int n = seed % 5 == 0 ? 600 : 120;
+            List<UniversityStudent> all = seed % 2 == 0 ? CheckSupport.sparse(n, seed) : CheckSupport.cohort(n, seed);
+            List<UniversityStudent> order = new ArrayList<>(all.subList(0, n / 2));
+            for (UniversityStudent s : order) {
+                if (r.nextInt(4) == 0) s.setAssignedRoommate(all.get(r.nextInt(n)));
+            }
+            StudentGraph graph = new StudentGraph(order, StudentGraph.BuildMode.values()[(int) (seed % 3)]);
+            graph.compact();
+            StudentGraph frozen = graph.snapshot();
+            String frozenDump = CheckSupport.dump(frozen);
+            Set<String> companies = new TreeSet<>(Arrays.asList(CheckSupport.COMPANIES));
+            for (UniversityStudent s : all) companies.addAll(s.getPreviousInternships());
+            companies.add("Nobody Holds This");
+
+            int nextNew = n / 2;
+            for (int op = 0; op < 200; op++) {
+                long version = graph.version();
+                int type = r.nextInt(4);
+                if (type == 0 && nextNew < n) {
+                    UniversityStudent s = all.get(nextNew++);
+                    if (r.nextBoolean()) s.setAssignedRoommate(order.get(r.nextInt(order.size())));
+                    graph.addStudent(s);
+                    order.add(s);
+                } else if (type == 1 && order.size() > 2) {
+                    UniversityStudent s = order.remove(r.nextInt(order.size()));
+                    CheckSupport.expect(graph.removeStudent(s), "remove reported missing student");
+                } else if (type == 2) {
+                    UniversityStudent s = order.get(r.nextInt(order.size()));
+                    s.getPreviousInternships().clear();
+                    s.getPreviousInternships().add(CheckSupport.COMPANIES[r.nextInt(10)]);
+                    if (r.nextBoolean()) s.setAssignedRoommate(order.get(r.nextInt(order.size())));
+                    graph.updateStudent(s);
+                } else {
+                    // Replace a student with a new object of the same name
+                    int i = r.nextInt(order.size());
+                    UniversityStudent s = new UniversityStudent(order.get(i).getName(), 18 + r.nextInt(8), "M", 1,
+                            CheckSupport.MAJORS[r.nextInt(8)], 3.0, new ArrayList<>(),
+                            List.of(CheckSupport.COMPANIES[r.nextInt(10)]));
+                    order.set(i, s);
+                    graph.updateStudent(s);
+                }
+                CheckSupport.expect(graph.version() > version || type == 0 || type == 1, "version not bumped");
+                CheckSupport.expect(CheckSupport.sortedDump(graph).equals(referenceDump(order)),
+                        "update differs from rebuild, seed " + seed + " op " + op);
+                if (r.nextInt(3) == 0) {
+                    CheckSupport.expect(canonical(graph.compact(), companies)
+                                    .equals(canonical(new CompactStudentGraph(new StudentGraph(order)), companies)),
+                            "patched CSR differs from a fresh one, seed " + seed + " op " + op);
+                }
+            }
+            CheckSupport.expect(CheckSupport.dump(frozen).equals(frozenDump), "snapshot saw later updates, seed " + seed);
+            CheckSupport.expect(readOnly(frozen.getNeighbors(frozen.getAllNodes().get(0)))
+                            && readOnly(graph.getNeighbors(order.get(0)))
+                            && readOnly(graph.getNeighbors(all.get(n - 1))) && readOnly(graph.getNeighbors(null)),
+                    "getNeighbors returned a writable list, seed " + seed);
+        }
+    }
+
+    private static boolean readOnly(List<StudentGraph.Edge> edges) {
+        try {
+            edges.add(null);
+            return false;
+        } catch (UnsupportedOperationException expected) {
+            return true;
+        }
+    }
+
+    /**
+     * CSR contents independent of id assignment: sorted rows by name, company
+     * membership both ways, and the edge count.
+     */
+    private static String canonical(CompactStudentGraph g, Set<String> companies) {
+        List<String> rows = new ArrayList<>();
+        for (int id = 0; id < g.size(); id++) {
+            UniversityStudent s = g.student(id);
+            if (g.idOf(s) != id) return "idOf(" + s.getName() + ") != " + id;
+            List<String> edges = new ArrayList<>();
+            for (int e = g.firstEdge(id); e < g.endEdge(id); e++) {
+                edges.add(g.student(g.target(e)).getName() + "/" + g.weight(e));
+            }
+            Collections.sort(edges);
+            StringBuilder row = new StringBuilder(s.getName()).append('@')
+                    .append(System.identityHashCode(s)).append(' ').append(edges);
+            for (String c : companies) {
+                int company = g.companyId(c);
+                if (company >= 0 && g.hasInternship(id, company)) row.append(' ').append(c);
+            }
+            rows.add(row.toString());
+        }
+        Collections.sort(rows);
+        for (String c : companies) {
+            int company = g.companyId(c);
+            List<String> holders = new ArrayList<>();
+            for (int k = 0; company >= 0 && k < g.holderCount(company); k++) {
+                holders.add(g.student(g.holder(company, k)).getName());
+            }
+            Collections.sort(holders);
+            rows.add(c + " " + holders);
+        }
+        rows.add("edges " + g.edgeCount());
+        return String.join("\n", rows);
+    }
+
+    /**
+     * The original scoring: roommate 4, each shared internship 3, same major 2, same age 1.
+     */
+    static int referenceStrength(UniversityStudent a, UniversityStudent b) {
+        int score = 0;
+        if (a.getRoommate() != null && a.getRoommate().equals(b)) score += 4;
+        for (String internship : a.getPreviousInternships()) {
+            if (b.getPreviousInternships().contains(internship)) score += 3;
+        }
+        if (a.getMajor().equals(b.getMajor())) score += 2;
+        if (a.getAge() == b.getAge()) score += 1;
+        return score;
+    }
+
+    private static void checkScoring() {
+        Random r = new Random(3);
+        String[] companies = {"A", "B", "C", "D", "E", null, "Ü"};
+        String[] majors = {"CS", "EE", "Math"};
+        // A third of the students use a dictionary of their own, so some pairs compare strings
+        AttributeDictionary cohort = new AttributeDictionary();
+        List<UniversityStudent> students = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            List<String> internships = new ArrayList<>();
+            int count = r.nextInt(6);
+            for (int k = 0; k < count; k++) internships.add(companies[r.nextInt(companies.length)]);
+            students.add(new UniversityStudent("S" + i, 18 + r.nextInt(3), "M", 1, majors[r.nextInt(3)], 3.0,
+                    new ArrayList<>(), internships, i % 3 == 0 ? cohort : AttributeDictionary.SHARED));
+        }
+        CheckSupport.randomRoommates(students, r);
+
+        // Edit majors and internship lists in every supported way after scores were cached
+        for (UniversityStudent s : students) s.calculateConnectionStrength(students.get(0));
+        for (int i = 0; i < 300; i++) {
+            UniversityStudent s = students.get(r.nextInt(students.size()));
+            List<String> list = s.getPreviousInternships();
+            switch (r.nextInt(7)) {
+                case 0: s.setMajor(new String("EE")); break;
+                case 1: s.setPreviousInternships(Arrays.asList("B", "B", null)); break;
+                case 2: list.add(companies[r.nextInt(companies.length)]); break;
+                case 3: list.removeIf("B"::equals); break;
+                case 4: list.clear(); break;
+                case 5: if (!list.isEmpty()) list.set(0, "C"); break;
+                default:
+                    list.addAll(Arrays.asList("D", "A"));
+                    list.sort(Comparator.nullsFirst(Comparator.naturalOrder()));
+            }
+        }
+        boolean same = true;
+        for (UniversityStudent a : students) {
+            for (UniversityStudent b : students) same &= a.calculateConnectionStrength(b) == referenceStrength(a, b);
+        }
+        CheckSupport.expect(same, "connection strength differs from the original formula");
+
+        // A student without a major cannot score, in either scoring path
+        UniversityStudent none = new UniversityStudent("None", 19, "M", 1, null, 3.0, new ArrayList<>(), new ArrayList<>());
+        List<UniversityStudent> withNone = new ArrayList<>(students.subList(0, 10));
+        withNone.add(0, none);
+        CheckSupport.expect(throwsNpe(() -> none.calculateConnectionStrength(students.get(0))), "null major did not throw");
+        CheckSupport.expect(students.get(0).calculateConnectionStrength(none) == referenceStrength(students.get(0), none),
+                "scoring a student without a major differs");
+        CohortColumns columns = new CohortColumns(withNone);
+        CheckSupport.expect(throwsNpe(() -> columns.scoreFrom(0, new int[11])), "columns scored a null major");
+        CheckSupport.expect(throwsNpe(() -> columns.edgeWeights(5, new int[11])), "columns let a null major score");
+    }
+
+    private static boolean throwsNpe(Runnable r) {
+        try {
+            r.run();
+            return false;
+        } catch (NullPointerException e) {
+            return true;
+        }
+    }
+
+    private static void checkColumns() {
+        for (int seed = 0; seed < 6; seed++) {
+            List<UniversityStudent> students = seed % 2 == 0 ? CheckSupport.cohort(700, seed) : CheckSupport.sparse(700, seed);
+            Random r = new Random(seed);
+            CheckSupport.randomRoommates(students, r);
+            if (seed == 4) {
+                // A duplicate name, a roommate known only by that name and a roommate outside the cohort
+                students.add(new UniversityStudent("S5", 20, "M", 1, "CS", 3.0, new ArrayList<>(), List.of("Google")));
+                students.get(10).setAssignedRoommate(new UniversityStudent("Nobody", 1, "M", 1, "x", 1,
+                        new ArrayList<>(), new ArrayList<>()));
+                students.get(11).setAssignedRoommate(new UniversityStudent("S5", 1, "M", 1, "x", 1,
+                        new ArrayList<>(), new ArrayList<>()));
+            }
+            // Students listing companies more than once, scored from both sides
+            int extra = students.size();
+            for (int i = 0; i < 6; i++) {
+                List<String> internships = new ArrayList<>(students.get(r.nextInt(extra)).getPreviousInternships());
+                internships.addAll(students.get(r.nextInt(extra)).getPreviousInternships());
+                if (!internships.isEmpty()) internships.add(internships.get(0));
+                students.add(r.nextInt(students.size()), new UniversityStudent("D" + i, 18 + r.nextInt(3), "F", 1,
+                        students.get(i).getMajor(), 3.0, new ArrayList<>(), internships));
+            }
+            CohortColumns columns = new CohortColumns(students);
+            int[] out = new int[students.size()];
+            Set<Integer> queries = new TreeSet<>();
+            for (int q = 0; q < students.size(); q++) {
+                if (q % 7 == 0 || students.get(q).getName().startsWith("D")) queries.add(q);
+            }
+            queries.add(11);
+            for (int q : queries) {
+                columns.scoreFrom(q, out);
+                boolean same = true;
+                for (int j = 0; j < students.size(); j++) {
+                    same &= out[j] == students.get(q).calculateConnectionStrength(students.get(j));
+                }
+                CheckSupport.expect(same, "scoreFrom(" + q + ") differs, seed " + seed);
+                columns.edgeWeights(q, out);
+                same = out[q] == 0;
+                for (int j = 0; j < students.size(); j++) {
+                    if (j == q) continue;
+                    UniversityStudent lower = students.get(Math.min(q, j));
+                    UniversityStudent upper = students.get(Math.max(q, j));
+                    same &= out[j] == lower.calculateConnectionStrength(upper);
+                }
+                CheckSupport.expect(same, "edgeWeights(" + q + ") differs, seed " + seed);
+            }
+        }
+        checkColumnEdits();
+    }
+
+    /**
+     * Sets and removes single rows, with gaps, repeated names and roommates
+     * that join or leave, and compares the scores with the students' own.
+     */
+    private static void checkColumnEdits() {
+        for (int seed = 0; seed < 4; seed++) {
+            Random r = new Random(seed);
+            List<UniversityStudent> pool = seed % 2 == 0 ? CheckSupport.cohort(120, seed) : CheckSupport.sparse(120, seed);
+            // Names repeat across the pool, and some students list a company twice
+            for (int i = 0; i < 20; i++) {
+                UniversityStudent s = pool.get(r.nextInt(pool.size()));
+                List<String> internships = new ArrayList<>(s.getPreviousInternships());
+                if (!internships.isEmpty()) internships.add(internships.get(0));
+                pool.add(new UniversityStudent(s.getName(), 18 + r.nextInt(3), "F", 1, s.getMajor(), 3.0,
+                        new ArrayList<>(), internships));
+            }
+            CheckSupport.randomRoommates(pool, r);
+
+            CohortColumns columns = new CohortColumns();
+            UniversityStudent[] rows = new UniversityStudent[200];
+            int[] out = new int[rows.length];
+            boolean same = true;
+            for (int step = 0; step < 600; step++) {
+                int id = r.nextInt(rows.length);
+                if (r.nextInt(3) == 0) {
+                    columns.remove(id);
+                    rows[id] = null;
+                } else {
+                    rows[id] = pool.get(r.nextInt(pool.size()));
+                    columns.set(id, rows[id]);
+                }
+                int q = r.nextInt(rows.length);
+                if (rows[q] == null) continue;
+                columns.scoreFrom(q, out);
+                for (int j = 0; j < columns.size(); j++) {
+                    same &= out[j] == (rows[j] == null ? 0 : rows[q].calculateConnectionStrength(rows[j]));
+                }
+                columns.edgeWeights(q, out);
+                for (int j = 0; j < columns.size(); j++) {
+                    int expected = rows[j] == null || j == q ? 0
+                            : j < q ? rows[j].calculateConnectionStrength(rows[q])
+                                    : rows[q].calculateConnectionStrength(rows[j]);
+                    same &= out[j] == expected;
+                }
+            }
+            CheckSupport.expect(same, "columns differ after single-row edits, seed " + seed);
+        }
+    }
+
+    /**
+     * Patches one CSR version several times, once with a patch that must fail,
+     * and checks no result disturbs another.
+     */
+    private static void checkRepatch() {
+        for (long seed = 1; seed <= 10; seed++) {
+            List<UniversityStudent> all = seed % 2 == 0 ? CheckSupport.sparse(400, seed) : CheckSupport.cohort(400, seed);
+            List<UniversityStudent> base = all.subList(0, 396);
+            Set<String> companies = new TreeSet<>(Arrays.asList(CheckSupport.COMPANIES));
+            for (UniversityStudent s : all) companies.addAll(s.getPreviousInternships());
+            // Start from a patched version, whose pools have room past their end
+            StudentGraph graph = new StudentGraph(base.subList(0, 395));
+            graph.compact();
+            graph.addStudent(base.get(395));
+            CompactStudentGraph original = graph.compact();
+            String originalForm = canonical(original, companies);
+
+            // A row pointing at a student outside the graph fails before writing anything
+            Map<UniversityStudent, List<StudentGraph.Edge>> bad = new LinkedHashMap<>();
+            bad.put(all.get(398), List.of(new StudentGraph.Edge(base.get(0), 5)));
+            bad.put(base.get(0), List.of(new StudentGraph.Edge(all.get(399), 5)));
+            CheckSupport.expect(original.patch(bad, null, s -> List.of()) == null,
+                    "patch with an unknown target succeeded, seed " + seed);
+
+            List<CompactStudentGraph> patched = new ArrayList<>();
+            List<String> expected = new ArrayList<>();
+            for (int k = 396; k < 399; k++) {
+                StudentGraph next = grown(base, all.get(k));
+                Map<UniversityStudent, List<StudentGraph.Edge>> changed = new HashMap<>();
+                changed.put(all.get(k), next.getNeighbors(all.get(k)));
+                for (StudentGraph.Edge e : next.getNeighbors(all.get(k))) changed.put(e.neighbor, next.getNeighbors(e.neighbor));
+                CompactStudentGraph c = original.patch(changed, null, next::getNeighbors);
+                if (c == null) continue;
+                patched.add(c);
+                expected.add(canonical(next.compact(), companies));
+            }
+            CheckSupport.expect(canonical(original, companies).equals(originalForm), "repatch changed the original, seed " + seed);
+            for (int k = 0; k < patched.size(); k++) {
+                CheckSupport.expect(canonical(patched.get(k), companies).equals(expected.get(k)),
+                        "patch " + k + " of one version was overwritten, seed " + seed);
+            }
+        }
+    }
+
+    private static StudentGraph grown(List<UniversityStudent> base, UniversityStudent added) {
+        List<UniversityStudent> students = new ArrayList<>(base);
+        students.add(added);
+        return new StudentGraph(students);
+    }
+}
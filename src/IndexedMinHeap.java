@@ -0,0 +1,110 @@
+import java.util.*;
+
+/**
+ * Binary min-heap of int ids keyed by int priorities, with decrease-key.
+ * Ties are broken by the smaller id so searches are deterministic.
+ * Arrays grow on demand and are reused across {@link #clear()} calls.
+ */
+public class IndexedMinHeap {
+
+    private int[] heap = new int[16];
+    private int[] keys = new int[16];
+    private int[] positions = new int[16];
+    private int size;
+
+    /**
+     * Makes sure ids in [0, capacity) can be inserted.
+     */
+    public void ensureCapacity(int capacity) {
+        if (positions.length < capacity) {
+            int grown = Math.max(capacity, positions.length * 2);
+            heap = Arrays.copyOf(heap, grown);
+            keys = Arrays.copyOf(keys, grown);
+            positions = Arrays.copyOf(positions, grown);
+        }
+    }
+
+    public boolean isEmpty() { return size == 0; }
+    public int size() { return size; }
+
+    /**
+     * Empties the heap in O(1); stale positions are detected by {@link #contains}.
+     */
+    public void clear() { size = 0; }
+
+    /**
+     * @return true if the id is currently queued
+     */
+    public boolean contains(int id) {
+        int p = positions[id];
+        return p < size && heap[p] == id;
+    }
+
+    /**
+     * @return key of the smallest entry
+     */
+    public int peekKey() { return keys[heap[0]]; }
+
+    /**
+     * Inserts the id, or lowers its key if it is already queued with a larger one.
+     */
+    public void insertOrDecrease(int id, int key) {
+        if (contains(id)) {
+            if (key < keys[id]) {
+                keys[id] = key;
+                siftUp(positions[id]);
+            }
+            return;
+        }
+        keys[id] = key;
+        heap[size] = id;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Removes and returns the id with the smallest key.
+     */
+    public int poll() {
+        int top = heap[0];
+        int last = heap[--size];
+        if (size > 0) {
+            heap[0] = last;
+            positions[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private boolean less(int a, int b) {
+        return keys[a] < keys[b] || (keys[a] == keys[b] && a < b);
+    }
+
+    private void siftUp(int p) {
+        int id = heap[p];
+        while (p > 0) {
+            int parent = (p - 1) >>> 1;
+            if (!less(id, heap[parent])) break;
+            heap[p] = heap[parent];
+            positions[heap[p]] = p;
+            p = parent;
+        }
+        heap[p] = id;
+        positions[id] = p;
+    }
+
+    private void siftDown(int p) {
+        int id = heap[p];
+        while (true) {
+            int child = 2 * p + 1;
+            if (child >= size) break;
+            if (child + 1 < size && less(heap[child + 1], heap[child])) child++;
+            if (!less(heap[child], id)) break;
+            heap[p] = heap[child];
+            positions[heap[p]] = p;
+            p = child;
+        }
+        heap[p] = id;
+        positions[id] = p;
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Append-only, lock-free message log for one student.
+ *
+ * Any number of threads may append at once. An append claims a slot with one
+ * getAndIncrement and then fills it, so senders to the same student never wait
+ * on a monitor. Slots live in segments that double in size (8, 16, 32, ...),
+ * found through a fixed directory, so lookup by index is O(1) and an empty log
+ * costs almost nothing.
+ *
+ * {@link #snapshot()} is O(1): it records the current length and later reads go
+ * straight to the segments. A slot that was claimed but not yet filled is
+ * waited for briefly, since its writer is between the two steps of append.
+ */
+public class MessageLog implements Iterable<ChatMessage> {
+
+    private static final int FIRST_SEGMENT_BITS = 3;
+    private static final int FIRST_SEGMENT = 1 << FIRST_SEGMENT_BITS;
+    // Segment k holds FIRST_SEGMENT << k slots; 29 segments cover every int index
+    private static final int MAX_SEGMENTS = 32 - FIRST_SEGMENT_BITS;
+
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicReferenceArray<AtomicReferenceArray<ChatMessage>> segments =
+            new AtomicReferenceArray<>(MAX_SEGMENTS);
+
+    /**
+     * Appends a message. Safe to call from any thread.
+     *
+     * @param message the message to record
+     */
+    public void append(ChatMessage message) {
+        Objects.requireNonNull(message, "message");
+        int index = claimed.getAndIncrement();
+        if (index < 0) {
+            claimed.decrementAndGet();
+            throw new IllegalStateException("Message log is full");
+        }
+        int k = segmentOf(index);
+        segment(k).set(offsetIn(k, index), message);
+    }
+
+    /**
+     * @return number of messages appended or being appended
+     */
+    public int size() {
+        return claimed.get();
+    }
+
+    /**
+     * Returns a view of the messages appended so far. Later appends are not part of it.
+     *
+     * @return fixed-length, unmodifiable view of this log
+     */
+    public List<ChatMessage> snapshot() {
+        int length = claimed.get();
+        return new AbstractList<ChatMessage>() {
+            @Override
+            public ChatMessage get(int index) {
+                Objects.checkIndex(index, length);
+                return read(index);
+            }
+
+            @Override
+            public int size() { return length; }
+        };
+    }
+
+    /**
+     * Iterates over a snapshot taken when this method is called.
+     */
+    @Override
+    public Iterator<ChatMessage> iterator() {
+        return snapshot().iterator();
+    }
+
+    private ChatMessage read(int index) {
+        int k = segmentOf(index);
+        int offset = offsetIn(k, index);
+        AtomicReferenceArray<ChatMessage> segment = segments.get(k);
+        while (segment == null) {
+            Thread.onSpinWait();
+            segment = segments.get(k);
+        }
+        ChatMessage message = segment.get(offset);
+        while (message == null) {
+            Thread.onSpinWait();
+            message = segment.get(offset);
+        }
+        return message;
+    }
+
+    private AtomicReferenceArray<ChatMessage> segment(int k) {
+        AtomicReferenceArray<ChatMessage> segment = segments.get(k);
+        if (segment == null) {
+            AtomicReferenceArray<ChatMessage> created = new AtomicReferenceArray<>(FIRST_SEGMENT << k);
+            segment = segments.compareAndSet(k, null, created) ? created : segments.get(k);
+        }
+        return segment;
+    }
+
+    // Index i lives in segment floor(log2(i / FIRST_SEGMENT + 1))
+    private static int segmentOf(int index) {
+        return 31 - Integer.numberOfLeadingZeros((index >>> FIRST_SEGMENT_BITS) + 1);
+    }
+
+    private static int offsetIn(int k, int index) {
+        return index - ((FIRST_SEGMENT << k) - FIRST_SEGMENT);
+    }
+}
@@ -0,0 +1,324 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Checks the concurrent messaging pieces under contention: message logs,
+ * the batched dispatcher and the asynchronous file sink. Each producer
+ * numbers its messages, so lost, duplicated or reordered ones show up.
+ */
+public class MessagingCheck {
+
+    private static final int PRODUCERS = 4;
+
+    public static void main(String[] args) throws Exception {
+        run();
+        CheckSupport.finish("MessagingCheck");
+    }
+
+    static void run() throws Exception {
+        checkMessageLog();
+        checkDispatcher();
+        checkDispatcherFailure();
+        checkDeadWorker();
+        checkAsyncSink();
+        checkAsyncSinkFailure();
+    }
+
+    private static void checkMessageLog() throws Exception {
+        MessageLog log = new MessageLog();
+        int perThread = 100_000;
+        Thread[] writers = new Thread[PRODUCERS];
+        for (int t = 0; t < PRODUCERS; t++) {
+            String sender = "T" + t;
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) log.append(ChatMessage.sent(sender, Integer.toString(i)));
+            });
+            writers[t].start();
+        }
+        boolean complete = true;
+        while (log.size() < PRODUCERS * perThread) {
+            List<ChatMessage> snapshot = log.snapshot();
+            int count = 0;
+            for (ChatMessage m : snapshot) {
+                complete &= m != null;
+                count++;
+            }
+            complete &= count == snapshot.size();
+        }
+        for (Thread t : writers) t.join();
+        CheckSupport.expect(complete, "message log snapshot had holes");
+        CheckSupport.expect(inProducerOrder(log.snapshot(), PRODUCERS, perThread), "message log lost or reordered messages");
+    }
+
+    /**
+     * Messages from each counterpart "T<p>" must be numbered 0, 1, 2, ... in log order.
+     */
+    private static boolean inProducerOrder(List<ChatMessage> messages, int producers, int perProducer) {
+        int[] next = new int[producers];
+        for (ChatMessage m : messages) {
+            int p = Integer.parseInt(m.getCounterpart().substring(1));
+            if (Integer.parseInt(m.getText()) != next[p]++) return false;
+        }
+        for (int count : next) {
+            if (count != perProducer) return false;
+        }
+        return true;
+    }
+
+    private static void checkDispatcher() throws Exception {
+        List<UniversityStudent> receivers = CheckSupport.cohort(50, 2);
+        List<UniversityStudent> senders = new ArrayList<>();
+        for (int p = 0; p < PRODUCERS; p++) {
+            senders.add(new UniversityStudent("T" + p, 20, "M", 1, "CS", 3.0, new ArrayList<>(), new ArrayList<>()));
+        }
+        StringBuilder lines = new StringBuilder();
+        EventSink previous = EventLog.setSink(collecting(lines));
+        int perProducer = 50_000;
+        SocialEventDispatcher dispatcher = new SocialEventDispatcher(3, 64, 16, null);
+        try {
+            Thread[] producers = new Thread[PRODUCERS];
+            for (int p = 0; p < PRODUCERS; p++) {
+                UniversityStudent sender = senders.get(p);
+                producers[p] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perProducer; i++) {
+                            dispatcher.chat(sender, receivers.get(i % receivers.size()), Integer.toString(i));
+                        }
+                        dispatcher.friendRequest(sender, receivers.get(0));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+                producers[p].start();
+            }
+            for (Thread t : producers) t.join();
+            dispatcher.close();
+        } finally {
+            EventLog.setSink(previous);
+        }
+
+        CheckSupport.expect(dispatcher.deliveredCount() == PRODUCERS * (perProducer + 1L), "dispatcher lost events");
+        CheckSupport.expect(lines.toString().split(System.lineSeparator()).length == PRODUCERS * (perProducer + 1),
+                "dispatcher wrote the wrong number of lines");
+        for (int p = 0; p < PRODUCERS; p++) {
+            CheckSupport.expect(senders.get(p).getMessageLog().size() == perProducer, "sender log size");
+        }
+        boolean ordered = true;
+        for (UniversityStudent r : receivers) {
+            int[] last = new int[PRODUCERS];
+            Arrays.fill(last, -1);
+            for (ChatMessage m : r.getMessageLog()) {
+                int p = Integer.parseInt(m.getCounterpart().substring(1));
+                int i = Integer.parseInt(m.getText());
+                ordered &= i > last[p];
+                last[p] = i;
+            }
+        }
+        CheckSupport.expect(ordered, "dispatcher reordered one receiver's messages");
+
+        boolean rejected = false;
+        try {
+            dispatcher.chat(senders.get(0), receivers.get(0), "late");
+        } catch (IllegalStateException e) {
+            rejected = true;
+        }
+        CheckSupport.expect(rejected, "closed dispatcher accepted an event");
+    }
+
+    private static void checkDispatcherFailure() throws Exception {
+        List<UniversityStudent> students = CheckSupport.cohort(50, 3);
+        EventSink failing = new EventSink() {
+            private int writes;
+
+            @Override
+            public synchronized void write(String text) {
+                if (writes++ % 2 == 0) throw new UncheckedIOException(new IOException("disk full"));
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        EventSink previous = EventLog.setSink(failing);
+        SocialEventDispatcher dispatcher = new SocialEventDispatcher(2, 4, 2, null);
+        String reported = null;
+        try {
+            for (int i = 0; i < 1000; i++) dispatcher.chat(students.get(i % 50), students.get((i * 7) % 50), "m" + i);
+            dispatcher.close();
+        } catch (UncheckedIOException e) {
+            reported = e.getCause().getMessage();
+        } finally {
+            EventLog.setSink(previous);
+        }
+        CheckSupport.expect("disk full".equals(reported), "sink failure not reported by close");
+        CheckSupport.expect(dispatcher.deliveredCount() == 1000, "sink failure stopped delivery");
+    }
+
+    /**
+     * A worker killed by an Error must fail producers waiting on its full
+     * queue, and close must report it, instead of either blocking forever.
+     */
+    private static void checkDeadWorker() throws Exception {
+        List<UniversityStudent> students = CheckSupport.cohort(10, 4);
+        EventSink crashing = new EventSink() {
+            @Override
+            public void write(String text) { throw new LinkageError("sink crashed"); }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        EventSink previous = EventLog.setSink(crashing);
+        ThreadFactory quiet = task -> {
+            Thread t = new Thread(task);
+            t.setDaemon(true);
+            t.setUncaughtExceptionHandler((thread, e) -> { });
+            return t;
+        };
+        SocialEventDispatcher dispatcher = new SocialEventDispatcher(1, 2, 1, quiet);
+        Throwable[] outcome = new Throwable[2];
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 100; i++) dispatcher.chat(students.get(0), students.get(1), "m" + i);
+            } catch (Throwable e) {
+                outcome[0] = e;
+            }
+        });
+        Thread closer = new Thread(() -> {
+            try {
+                dispatcher.close();
+            } catch (Throwable e) {
+                outcome[1] = e;
+            }
+        });
+        try {
+            producer.setDaemon(true);
+            producer.start();
+            producer.join(10_000);
+            closer.setDaemon(true);
+            closer.start();
+            closer.join(10_000);
+        } finally {
+            EventLog.setSink(previous);
+        }
+        CheckSupport.expect(!producer.isAlive() && outcome[0] instanceof IllegalStateException,
+                "producer not failed by a dead worker: " + outcome[0]);
+        CheckSupport.expect(!closer.isAlive() && outcome[1] instanceof IllegalStateException
+                        && outcome[1].getCause() instanceof LinkageError,
+                "close did not report the dead worker: " + outcome[1]);
+    }
+
+    private static void checkAsyncSink() throws Exception {
+        for (int capacity : new int[]{4, 1 << 16}) {
+            Path file = Files.createTempFile("events", ".log");
+            try {
+                AsyncEventSink sink = new AsyncEventSink(FileChannel.open(file,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), capacity);
+                int perThread = 100_000;
+                Thread[] writers = new Thread[PRODUCERS];
+                for (int t = 0; t < PRODUCERS; t++) {
+                    int id = t;
+                    writers[t] = new Thread(() -> {
+                        for (int i = 0; i < perThread; i++) sink.writeLine(id + " " + i + " → ü");
+                    });
+                    writers[t].start();
+                }
+                for (Thread t : writers) t.join();
+                boolean rejected = false;
+                try {
+                    sink.write(null);
+                } catch (NullPointerException e) {
+                    rejected = true;
+                }
+                CheckSupport.expect(rejected, "async sink accepted null");
+                sink.close();
+
+                int[] next = new int[PRODUCERS];
+                boolean ordered = true;
+                for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                    String[] parts = line.split(" ");
+                    int t = Integer.parseInt(parts[0]);
+                    ordered &= Integer.parseInt(parts[1]) == next[t]++ && line.endsWith(" → ü");
+                }
+                for (int count : next) ordered &= count == perThread;
+                CheckSupport.expect(ordered, "async sink lost or reordered lines, capacity " + capacity);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * A channel that throws a RuntimeException must not block producers and is
+     * reported by flush; one that kills the writer with an Error must fail
+     * producers waiting on the full ring.
+     */
+    private static void checkAsyncSinkFailure() throws Exception {
+        for (boolean fatal : new boolean[]{false, true}) {
+            WritableByteChannel broken = new WritableByteChannel() {
+                @Override
+                public int write(ByteBuffer src) {
+                    if (fatal) throw new LinkageError("channel crashed");
+                    throw new IllegalArgumentException("channel rejected");
+                }
+
+                @Override
+                public boolean isOpen() { return true; }
+
+                @Override
+                public void close() { }
+            };
+            AsyncEventSink sink = new AsyncEventSink(broken, 4);
+            Throwable[] outcome = new Throwable[2];
+            Thread producer = new Thread(() -> {
+                try {
+                    for (int i = 0; i < 10_000; i++) sink.writeLine("m" + i);
+                } catch (Throwable e) {
+                    outcome[0] = e;
+                }
+                try {
+                    sink.flush();
+                } catch (Throwable e) {
+                    outcome[1] = e;
+                }
+            });
+            producer.setDaemon(true);
+            producer.start();
+            producer.join(10_000);
+            CheckSupport.expect(!producer.isAlive(), "producer blocked on a failed sink, fatal " + fatal);
+            if (fatal) {
+                CheckSupport.expect(outcome[0] instanceof IllegalStateException
+                                && outcome[0].getCause() instanceof LinkageError,
+                        "producer not failed by a dead writer: " + outcome[0]);
+                CheckSupport.expect(outcome[1] instanceof IllegalStateException,
+                        "flush did not report the dead writer: " + outcome[1]);
+            } else {
+                CheckSupport.expect(outcome[0] == null, "producer failed by a channel error: " + outcome[0]);
+                CheckSupport.expect(outcome[1] instanceof IllegalArgumentException,
+                        "flush did not report the channel error: " + outcome[1]);
+            }
+        }
+    }
+
+    private static EventSink collecting(StringBuilder out) {
+        return new EventSink() {
+            @Override
+            public synchronized void write(String text) { out.append(text); }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+    }
+}
@@ -0,0 +1,207 @@
+import java.io.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Checks the streaming parser against the checkpoint outputs and against the
+ * original split-based pipe parser on random input, and chunked parsing
+ * against a single pass, including where the first error is reported.
+ *
+ * Takes the directory holding {@code testing_checkpointone} as its argument,
+ * {@code testing} by default; the checkpoint comparison is skipped if it is missing.
+ */
+public class ParserCheck {
+
+    private static final String[] FRAGMENTS = {"A", "B", "C", "None", "none", " ", "", ",", ", ", "x y",
+                                               "Ünï", "12", "-3", "+4", "3.5", "abc", "1e3", "NaN"};
+
+    public static void main(String[] args) throws Exception {
+        run(args.length > 0 ? args[0] : "testing");
+        CheckSupport.finish("ParserCheck");
+    }
+
+    static void run(String testingDir) throws Exception {
+        Path checkpoint = Paths.get(testingDir, "testing_checkpointone");
+        if (Files.isDirectory(checkpoint)) {
+            checkCheckpoint(checkpoint);
+        } else {
+            System.out.println("ParserCheck: " + checkpoint + " not found, skipping checkpoint outputs");
+        }
+        checkPipeFuzz();
+        checkChunks(Files.isDirectory(checkpoint) ? checkpoint.resolve("inputs") : null);
+    }
+
+    private static void checkCheckpoint(Path dir) throws IOException {
+        String[][] cases = {
+            {"normal_1.txt", "normal_1_output.txt"}, {"normal_2.txt", "normal_2_output.txt"},
+            {"normal_3.txt", "normal_3_output.txt"}, {"normal_4.txt", "normal_4_output.txt"},
+            {"normal_5.txt", "normal_5_output.txt"},
+            {"testing_incorrect_format_exception.txt", "incorrect_format_output.txt"},
+            {"testing_invalid_age_exception.txt", "invalid_age_output.txt"},
+            {"testing_invalid_gpa_exception.txt", "invalid_gpa_output"},
+            {"testing_missing_field_exception.txt", "missing_field_output"}};
+        for (String[] c : cases) {
+            String expected = new String(Files.readAllBytes(dir.resolve("outputs").resolve(c[1])),
+                    StandardCharsets.UTF_8).replace("\r", "").trim();
+            String got;
+            try {
+                StringBuilder out = new StringBuilder();
+                for (UniversityStudent s : DataParser.parseStudentsFromFile(dir.resolve("inputs").resolve(c[0]).toString())) {
+                    out.append(s).append('\n');
+                }
+                got = out.toString().trim();
+            } catch (DataParser.ParseException e) {
+                got = "Parsing error: " + e.getMessage();
+            } catch (DataParser.InvalidNumberException e) {
+                got = "Number format error: " + e.getMessage();
+            }
+            CheckSupport.expect(got.equals(expected), "checkpoint output for " + c[0]);
+        }
+    }
+
+    /**
+     * The original pipe parser: split each line on '|', then filter roommate
+     * preferences to known names.
+     */
+    static List<UniversityStudent> referencePipe(Path file) throws IOException {
+        List<UniversityStudent> students = new ArrayList<>();
+        for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            String[] parts = line.split("\\|");
+            if (parts.length < 8) throw new IOException("Malformed line: " + line);
+            students.add(new UniversityStudent(parts[0].trim(), Integer.parseInt(parts[1].trim()), parts[2].trim(),
+                    Integer.parseInt(parts[3].trim()), parts[4].trim(), Double.parseDouble(parts[5].trim()),
+                    referenceList(parts[6].trim()), referenceList(parts[7].trim())));
+        }
+        Set<String> names = new HashSet<>();
+        for (UniversityStudent s : students) names.add(s.getName());
+        for (UniversityStudent s : students) s.getRoommatePreferences().removeIf(p -> !names.contains(p));
+        return students;
+    }
+
+    private static List<String> referenceList(String input) {
+        List<String> list = new ArrayList<>();
+        if (input.isEmpty() || input.equalsIgnoreCase("None")) return list;
+        for (String item : input.split(",")) list.add(item.trim());
+        return list;
+    }
+
+    private interface Parse {
+        List<UniversityStudent> apply(Path file) throws IOException;
+    }
+
+    /**
+     * Parsed students, or the kind of error with its message.
+     */
+    private static String outcome(Parse parse, Path file) {
+        try {
+            return parse.apply(file).toString();
+        } catch (NumberFormatException e) {
+            return "number format error";
+        } catch (IOException e) {
+            return "IOException: " + e.getMessage();
+        }
+    }
+
+    private static void checkPipeFuzz() throws IOException {
+        Random r = new Random(5);
+        Path file = Files.createTempFile("pipe", ".txt");
+        try {
+            for (int t = 0; t < 3000; t++) {
+                StringBuilder text = new StringBuilder();
+                int lines = 1 + r.nextInt(5);
+                for (int l = 0; l < lines; l++) {
+                    int fields = r.nextInt(11);
+                    for (int k = 0; k < fields; k++) {
+                        if (k > 0) text.append('|');
+                        int pieces = r.nextInt(3);
+                        for (int q = 0; q < pieces; q++) text.append(FRAGMENTS[r.nextInt(FRAGMENTS.length)]);
+                        if (k == 1 || k == 3) text.append(r.nextInt(10) == 0 ? "x" : Integer.toString(r.nextInt(30)));
+                        if (k == 5) text.append(r.nextInt(10) == 0 ? "y" : "3.2");
+                    }
+                    text.append(r.nextBoolean() ? "\n" : "\r\n");
+                    if (r.nextInt(5) == 0) text.append("  \n");
+                }
+                Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+                String expected = outcome(ParserCheck::referencePipe, file);
+                String got = outcome(f -> DataParser.parseStudentsFromFile(f.toString()), file);
+                CheckSupport.expect(got.equals(expected), "pipe input differs from the original parser:\n" + text);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Exact outcome including the line number of an error.
+     */
+    private static String located(Parse parse, Path file) {
+        try {
+            return parse.apply(file).toString();
+        } catch (DataParser.ParseException e) {
+            return "parse error " + e.getMessage() + " @" + e.getLineNumber();
+        } catch (DataParser.InvalidNumberException e) {
+            return "number error " + e.getMessage() + " @" + e.getLineNumber();
+        } catch (IOException e) {
+            return e.toString();
+        }
+    }
+
+    private static void checkChunks(Path inputs) throws IOException {
+        List<String> blocks = new ArrayList<>();
+        List<String> badBlocks = new ArrayList<>();
+        if (inputs != null) {
+            for (String f : new String[]{"normal_1.txt", "normal_2.txt", "normal_4.txt", "normal_5.txt"}) {
+                blocks.add(new String(Files.readAllBytes(inputs.resolve(f)), StandardCharsets.UTF_8));
+            }
+            for (String f : new String[]{"testing_incorrect_format_exception.txt", "testing_invalid_age_exception.txt",
+                                         "testing_invalid_gpa_exception.txt", "testing_missing_field_exception.txt"}) {
+                badBlocks.add(new String(Files.readAllBytes(inputs.resolve(f)), StandardCharsets.UTF_8));
+            }
+        }
+        Random r = new Random(9);
+        Path file = Files.createTempFile("chunks", ".txt");
+        try {
+            for (int t = 0; t < 600; t++) {
+                boolean block = t % 2 == 0 && !blocks.isEmpty();
+                StringBuilder text = new StringBuilder();
+                int records = 5 + r.nextInt(60);
+                for (int i = 0; i < records; i++) {
+                    if (block) {
+                        String b = r.nextInt(40) == 0 ? badBlocks.get(r.nextInt(badBlocks.size())) : blocks.get(r.nextInt(blocks.size()));
+                        text.append(b);
+                        if (!b.endsWith("\n")) text.append('\n');
+                        if (r.nextBoolean()) text.append('\n');
+                    } else {
+                        String age = r.nextInt(60) == 0 ? "old" : Integer.toString(18 + r.nextInt(5));
+                        text.append("S").append(i).append('|').append(age).append("|M|2|CS|3.5|S").append(i + 1).append("|Google\n");
+                        if (r.nextInt(8) == 0) text.append('\n');
+                        if (r.nextInt(80) == 0) text.append("broken|line\n");
+                    }
+                }
+                Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+                String expected = located(f -> DataParser.parseStudentsFromFile(f.toString()), file);
+                for (long chunk : new long[]{1, 37, 200, 5000}) {
+                    CheckSupport.expect(located(f -> DataParser.parseInChunks(f, chunk, 300), file).equals(expected),
+                            "chunked parse with " + chunk + "-byte chunks differs, case " + t);
+                }
+            }
+
+            // Every chunk encodes into the cohort's own dictionary
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 50; i++) text.append("S").append(i).append("|20|M|2|CS|3.5|S1|Google,IBM\n");
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            List<UniversityStudent> chunked = DataParser.parseInChunks(file, 37, 300);
+            List<UniversityStudent> sequential = DataParser.parseStudentsFromFile(file.toString());
+            boolean shared = chunked.get(0).getDictionary() != AttributeDictionary.SHARED
+                    && chunked.get(0).getDictionary() != sequential.get(0).getDictionary();
+            for (UniversityStudent s : chunked) shared &= s.getDictionary() == chunked.get(0).getDictionary();
+            for (UniversityStudent s : sequential) shared &= s.getDictionary() == sequential.get(0).getDictionary();
+            CheckSupport.expect(shared, "parsed students do not share a cohort dictionary");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * Immutable result of pod formation. Pods are stored CSR-style: the members
+ * of pod {@code p} are {@code member(p, 0)} up to {@code member(p, podSize(p) - 1)},
+ * in the order they joined. Student ids are those of the graph's {@link CompactStudentGraph}.
+ */
+public class PodAssignment {
+
+    private final CompactStudentGraph graph;
+    private final int[] podOf;
+    private final int[] podOffsets;
+    private final int[] members;
+
+    /**
+     * @param graph graph the student ids refer to
+     * @param podOffsets start of each pod in {@code members}, plus a final end offset
+     * @param members student ids grouped by pod
+     */
+    PodAssignment(CompactStudentGraph graph, int[] podOffsets, int[] members) {
+        this.graph = graph;
+        this.podOffsets = podOffsets;
+        this.members = members;
+        this.podOf = new int[graph.size()];
+        Arrays.fill(podOf, -1);
+        for (int p = 0; p + 1 < podOffsets.length; p++) {
+            for (int k = podOffsets[p]; k < podOffsets[p + 1]; k++) podOf[members[k]] = p;
+        }
+    }
+
+    public CompactStudentGraph graph() { return graph; }
+
+    /**
+     * @return number of pods
+     */
+    public int podCount() { return podOffsets.length - 1; }
+
+    /**
+     * @return number of students in the pod
+     */
+    public int podSize(int pod) { return podOffsets[pod + 1] - podOffsets[pod]; }
+
+    /**
+     * @return id of the k-th student to join the pod
+     */
+    public int member(int pod, int k) { return members[podOffsets[pod] + k]; }
+
+    /**
+     * @param id student id
+     * @return the student's pod, or -1 if unassigned
+     */
+    public int podOf(int id) { return podOf[id]; }
+
+    /**
+     * @return the students of one pod, in joining order
+     */
+    public List<UniversityStudent> getPod(int pod) {
+        List<UniversityStudent> result = new ArrayList<>(podSize(pod));
+        for (int k = podOffsets[pod]; k < podOffsets[pod + 1]; k++) result.add(graph.student(members[k]));
+        return result;
+    }
+
+    /**
+     * @return total weight of connections between students in the same pod
+     */
+    public long intraPodWeight() {
+        long total = 0;
+        for (int id = 0; id < podOf.length; id++) {
+            for (int e = graph.firstEdge(id); e < graph.endEdge(id); e++) {
+                int other = graph.target(e);
+                // Count each connection once
+                if (other > id && podOf[other] == podOf[id] && podOf[id] >= 0) total += graph.weight(e);
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,152 @@
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * Checks pod formation against the original greedy, which rescans every pod
+ * member's edges for each pick, and checks that the parallel and refined
+ * variants keep their guarantees.
+ */
+public class PodCheck {
+
+    public static void main(String[] args) throws IOException {
+        run();
+        CheckSupport.finish("PodCheck");
+    }
+
+    static void run() throws IOException {
+        for (int seed = 0; seed < 10; seed++) {
+            List<UniversityStudent> students = seed % 2 == 0 ? CheckSupport.cohort(200 + seed * 20, seed) : CheckSupport.sparse(2000, seed);
+            GaleShapley.setAssignedRoommate(students);
+            StudentGraph graph = new StudentGraph(students, StudentGraph.BuildMode.BUCKETED);
+            PodFormation formation = new PodFormation(graph);
+            for (int podSize : new int[]{1, 2, 3, 5, 8}) {
+                PodAssignment pods = formation.assignPods(podSize);
+                String expected = referenceReport(graph, podSize);
+                CheckSupport.expect(report(pods).equals(expected), "pods of size " + podSize + ", seed " + seed);
+                checkWriter(pods, expected);
+                CheckSupport.expect(capture(() -> formation.formPods(podSize)).equals(expected),
+                        "formPods output, size " + podSize + ", seed " + seed);
+                CheckSupport.expect(report(formation.assignPodsParallel(podSize)).equals(expected),
+                        "parallel pods of size " + podSize + ", seed " + seed);
+                PodAssignment refined = formation.refinePods(pods, 2000, 5000);
+                checkRefined(pods, refined, podSize, seed);
+                // A budget too large for nanoseconds means no limit, not an expired deadline
+                CheckSupport.expect(formation.refinePods(pods, Long.MAX_VALUE, 5000).intraPodWeight() == refined.intraPodWeight(),
+                        "unbounded refinement differs, size " + podSize + ", seed " + seed);
+            }
+        }
+    }
+
+    /**
+     * The original formPods: start from the unassigned student with the largest
+     * total weight, then repeatedly add the strongest edge out of the pod.
+     */
+    static String referenceReport(StudentGraph graph, int podSize) {
+        Set<UniversityStudent> unassigned = new HashSet<>(graph.getAllNodes());
+        StringBuilder out = new StringBuilder();
+        int number = 1;
+        while (!unassigned.isEmpty()) {
+            UniversityStudent start = null;
+            int bestSum = -1;
+            for (UniversityStudent s : unassigned) {
+                int sum = 0;
+                for (StudentGraph.Edge e : graph.getNeighbors(s)) sum += e.weight;
+                if (sum > bestSum) {
+                    bestSum = sum;
+                    start = s;
+                }
+            }
+            List<UniversityStudent> pod = new ArrayList<>();
+            pod.add(start);
+            unassigned.remove(start);
+            while (pod.size() < podSize) {
+                UniversityStudent best = null;
+                int bestScore = -1;
+                for (UniversityStudent s : pod) {
+                    for (StudentGraph.Edge e : graph.getNeighbors(s)) {
+                        if (unassigned.contains(e.neighbor) && e.weight > bestScore) {
+                            bestScore = e.weight;
+                            best = e.neighbor;
+                        }
+                    }
+                }
+                if (best == null) break;
+                pod.add(best);
+                unassigned.remove(best);
+            }
+            appendPod(out, number++, pod);
+        }
+        return out.toString();
+    }
+
+    private static void appendPod(StringBuilder out, int number, List<UniversityStudent> pod) {
+        String newline = System.lineSeparator();
+        out.append("Pod ").append(number).append(':').append(newline);
+        for (UniversityStudent s : pod) out.append("   ").append(s.getName()).append(newline);
+        out.append(newline);
+    }
+
+    /**
+     * Runs the task with a sink that collects everything written to the {@link EventLog}.
+     */
+    private static String capture(Runnable task) {
+        StringBuilder text = new StringBuilder();
+        EventSink previous = EventLog.setSink(new EventSink() {
+            @Override
+            public synchronized void write(String s) { text.append(s); }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        });
+        try {
+            task.run();
+        } finally {
+            EventLog.setSink(previous);
+        }
+        return text.toString();
+    }
+
+    private static String report(PodAssignment pods) {
+        StringBuilder out = new StringBuilder();
+        for (int i = 0; i < pods.podCount(); i++) appendPod(out, i + 1, pods.getPod(i));
+        return out.toString();
+    }
+
+    /**
+     * The report writer must produce the same text for every target.
+     */
+    private static void checkWriter(PodAssignment pods, String expected) throws IOException {
+        StringBuilder text = new StringBuilder();
+        PodReportWriter.write(pods, text);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (WritableByteChannel channel = Channels.newChannel(bytes)) {
+            PodReportWriter.write(pods, channel);
+        }
+        CheckSupport.expect(text.toString().equals(expected), "report written to an Appendable differs");
+        CheckSupport.expect(capture(() -> PodReportWriter.write(pods, EventLog.sink())).equals(expected),
+                "report written to an EventSink differs");
+        CheckSupport.expect(new String(bytes.toByteArray(), StandardCharsets.UTF_8).equals(expected),
+                "report written to a channel differs");
+    }
+
+    private static void checkRefined(PodAssignment pods, PodAssignment refined, int podSize, int seed) {
+        boolean same = pods.podCount() == refined.podCount();
+        Set<Integer> members = new HashSet<>();
+        for (int i = 0; same && i < refined.podCount(); i++) {
+            same = pods.podSize(i) == refined.podSize(i);
+            for (int k = 0; k < refined.podSize(i); k++) {
+                members.add(refined.member(i, k));
+                same &= refined.podOf(refined.member(i, k)) == i;
+            }
+        }
+        CheckSupport.expect(same && members.size() == refined.graph().size(),
+                "refined pods changed shape, size " + podSize + ", seed " + seed);
+        CheckSupport.expect(refined.intraPodWeight() >= pods.intraPodWeight(),
+                "refinement lost weight, size " + podSize + ", seed " + seed);
+    }
+}
@@ -1,8 +1,15 @@
 import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.stream.*;
 
 /**
  * Groups students into pods based on connection strengths.
  * Uses greedy algorithm to form groups with strong connections.
+ * Starters come from a precomputed ordering by weighted degree, and each pod
+ * grows from a priority queue of its frontier edges, so forming all pods
+ * costs O(E log E) instead of rescanning the cohort for every seat.
+ * Pods never span connected components, so components can also be formed
+ * concurrently and merged back into the sequential order.
  */
 public class PodFormation {
 
@@ -12,65 +19,379 @@ public class PodFormation {
         this.graph = graph;
     }
 
+    /**
+     * Forms pods of the specified size and prints them to the {@link EventLog}.
+     *
+     * @param podSize target size for each pod
+     */
+    public void formPods(int podSize) {
+        PodReportWriter.write(assignPods(podSize), EventLog.sink());
+    }
+
     /**
      * Forms pods of the specified size.
      * Starts with the most connected student, then adds their strongest connections.
-     * 
+     *
      * @param podSize target size for each pod
+     * @return the pods, in the order they were formed
      */
-    public void formPods(int podSize) {
-        List<UniversityStudent> all = graph.getAllNodes();
-        Set<UniversityStudent> unassigned = new HashSet<>(all);
-        List<List<UniversityStudent>> allPods = new ArrayList<>();
-
-        while (!unassigned.isEmpty()) {
-            List<UniversityStudent> pod = new ArrayList<>();
-            UniversityStudent start = pickStrongestStarter(unassigned);
-            pod.add(start);
-            unassigned.remove(start);
-
-            while (pod.size() < podSize) {
-                UniversityStudent bestCandidate = null;
-                int bestScore = -1;
-                for (UniversityStudent s : pod) {
-                    for (StudentGraph.Edge e : graph.getNeighbors(s)) {
-                        if (unassigned.contains(e.neighbor) && e.weight > bestScore) {
-                            bestScore = e.weight;
-                            bestCandidate = e.neighbor;
-                        }
+    public PodAssignment assignPods(int podSize) {
+        CompactStudentGraph g = graph.compact();
+        int n = g.size();
+        int[] starters = starterOrder(g);
+        int[] members = new int[n];
+        int[] podEnds = new int[n];
+        int podCount = growPods(g, starters, 0, n, podSize, new boolean[n], new FrontierHeap(), members, podEnds);
+
+        int[] podOffsets = new int[podCount + 1];
+        System.arraycopy(podEnds, 0, podOffsets, 1, podCount);
+        return new PodAssignment(g, podOffsets, members);
+    }
+
+    /**
+     * Same result as {@link #assignPods}, but labels connected components first and
+     * forms each component's pods concurrently on the common ForkJoinPool.
+     * The greedy picks starters in one global order, and a pod never leaves its
+     * component, so sorting all pods by their starter's position in that order
+     * reproduces the sequential result exactly.
+     *
+     * @param podSize target size for each pod
+     * @return the pods, in the order the sequential greedy would form them
+     */
+    public PodAssignment assignPodsParallel(int podSize) {
+        CompactStudentGraph g = graph.compact();
+        int n = g.size();
+        int[] starters = starterOrder(g);
+        int[] root = labelComponents(g);
+
+        // Lay components out contiguously, each keeping its starters in global order
+        int[] componentStart = new int[n + 1];
+        for (int id = 0; id < n; id++) componentStart[root[id] + 1]++;
+        for (int r = 0; r < n; r++) componentStart[r + 1] += componentStart[r];
+        int[] fill = Arrays.copyOf(componentStart, n);
+        int[] grouped = new int[n];
+        for (int starter : starters) grouped[fill[root[starter]]++] = starter;
+        int[] roots = IntStream.range(0, n).filter(id -> root[id] == id).toArray();
+
+        int[] members = new int[n];
+        int[] podEnds = new int[n];
+        int[] podCounts = new int[n];
+        boolean[] assigned = new boolean[n];
+        ThreadLocal<FrontierHeap> frontiers = ThreadLocal.withInitial(FrontierHeap::new);
+        Arrays.stream(roots).parallel().forEach(r -> podCounts[r] = growPods(
+                g, grouped, componentStart[r], componentStart[r + 1], podSize, assigned, frontiers.get(), members, podEnds));
+
+        // Order pods by where their starter falls in the global starter order
+        int[] orderIndex = new int[n];
+        for (int i = 0; i < n; i++) orderIndex[starters[i]] = i;
+        int total = 0;
+        for (int r : roots) total += podCounts[r];
+        long[] keys = new long[total];
+        int[] podBegin = new int[total];
+        int[] podEnd = new int[total];
+        int k = 0;
+        for (int r : roots) {
+            for (int p = 0; p < podCounts[r]; p++) {
+                podBegin[k] = p == 0 ? componentStart[r] : podEnds[componentStart[r] + p - 1];
+                podEnd[k] = podEnds[componentStart[r] + p];
+                keys[k] = ((long) orderIndex[members[podBegin[k]]] << 32) | k;
+                k++;
+            }
+        }
+        Arrays.sort(keys);
+
+        int[] orderedMembers = new int[n];
+        int[] podOffsets = new int[total + 1];
+        int filled = 0;
+        for (int i = 0; i < total; i++) {
+            int pod = (int) keys[i];
+            int length = podEnd[pod] - podBegin[pod];
+            System.arraycopy(members, podBegin[pod], orderedMembers, filled, length);
+            filled += length;
+            podOffsets[i + 1] = filled;
+        }
+        return new PodAssignment(g, podOffsets, orderedMembers);
+    }
+
+    /**
+     * Improves pods by swapping students between them while the total intra-pod
+     * connection weight goes up. Each step takes one student, sums its connection
+     * weight to every pod it touches with a single pass over its neighbors, and
+     * tries swapping it with each member of those pods; the gain of a swap comes
+     * from the two students' neighbors only, so no pod is rescored from scratch.
+     * Pod sizes and pod order are kept.
+     *
+     * @param pods pods to improve, usually from {@link #assignPods}
+     * @param timeBudgetMillis wall-clock limit for the refinement; {@code Long.MAX_VALUE}
+     *        or any budget too large to express in nanoseconds means no limit
+     * @param maxIterations limit on the number of students examined
+     * @return refined pods; stops early once a full pass finds no improving swap
+     */
+    public PodAssignment refinePods(PodAssignment pods, long timeBudgetMillis, int maxIterations) {
+        CompactStudentGraph g = pods.graph();
+        int n = g.size();
+        int podCount = pods.podCount();
+        // Budgets that overflow in nanoseconds are treated as no limit
+        boolean timed = timeBudgetMillis < Long.MAX_VALUE / 1_000_000L;
+        long deadline = timed ? System.nanoTime() + timeBudgetMillis * 1_000_000L : 0L;
+
+        int[] podOf = new int[n];
+        Arrays.fill(podOf, -1);
+        int[] slot = new int[n];
+        int[] podOffsets = new int[podCount + 1];
+        int[] members = new int[n];
+        int filled = 0;
+        for (int p = 0; p < podCount; p++) {
+            for (int k = 0; k < pods.podSize(p); k++) {
+                int id = pods.member(p, k);
+                members[filled] = id;
+                slot[id] = filled++;
+                podOf[id] = p;
+            }
+            podOffsets[p + 1] = filled;
+        }
+
+        // Sparse accumulator of one student's weight into each pod
+        int[] podWeight = new int[podCount];
+        int[] stamps = new int[podCount];
+        int[] touched = new int[podCount];
+        int stamp = 0;
+
+        int quietSteps = 0;
+        int id = 0;
+        for (int iteration = 0; iteration < maxIterations && quietSteps < n; iteration++) {
+            if (timed && System.nanoTime() - deadline >= 0) break;
+            int u = id;
+            id = id + 1 == n ? 0 : id + 1;
+            quietSteps++;
+            int home = podOf[u];
+            if (home < 0) continue;
+
+            stamp++;
+            int touchedCount = 0;
+            for (int e = g.firstEdge(u); e < g.endEdge(u); e++) {
+                int p = podOf[g.target(e)];
+                if (p < 0) continue;
+                if (stamps[p] != stamp) {
+                    stamps[p] = stamp;
+                    podWeight[p] = 0;
+                    touched[touchedCount++] = p;
+                }
+                podWeight[p] += g.weight(e);
+            }
+            int weightHome = stamps[home] == stamp ? podWeight[home] : 0;
+
+            int bestGain = 0;
+            int bestPartner = -1;
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                if (other == home) continue;
+                for (int k = podOffsets[other]; k < podOffsets[other + 1]; k++) {
+                    int v = members[k];
+                    int toHome = 0, toOther = 0, between = 0;
+                    for (int e = g.firstEdge(v); e < g.endEdge(v); e++) {
+                        int w = g.target(e);
+                        if (w == u) between += g.weight(e);
+                        if (podOf[w] == home) toHome += g.weight(e);
+                        else if (podOf[w] == other) toOther += g.weight(e);
+                    }
+                    int gain = podWeight[other] - weightHome + toHome - toOther - 2 * between;
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        bestPartner = v;
                     }
                 }
-                if (bestCandidate == null) break;
-                pod.add(bestCandidate);
-                unassigned.remove(bestCandidate);
             }
 
-            allPods.add(pod);
+            if (bestPartner >= 0) {
+                int v = bestPartner;
+                int uSlot = slot[u];
+                members[uSlot] = v;
+                members[slot[v]] = u;
+                slot[u] = slot[v];
+                slot[v] = uSlot;
+                podOf[u] = podOf[v];
+                podOf[v] = home;
+                quietSteps = 0;
+            }
+        }
+
+        return new PodAssignment(g, podOffsets, members);
+    }
+
+    /**
+     * Runs the greedy over {@code starters[from..to)}, writing pod members into
+     * {@code members[from..)} and each pod's end offset into {@code podEnds[from..)}.
+     *
+     * @return number of pods formed
+     */
+    private static int growPods(CompactStudentGraph g, int[] starters, int from, int to, int podSize,
+                                boolean[] assigned, FrontierHeap frontier, int[] members, int[] podEnds) {
+        int filled = from;
+        int podCount = 0;
+        int nextStarter = from;
+        while (true) {
+            while (nextStarter < to && assigned[starters[nextStarter]]) nextStarter++;
+            if (nextStarter == to) break;
+
+            int podStart = filled;
+            int start = starters[nextStarter];
+            frontier.clear();
+            members[filled++] = start;
+            assigned[start] = true;
+            frontier.pushEdges(g, start, assigned);
+
+            while (filled - podStart < podSize) {
+                int bestCandidate = frontier.pollUnassigned(assigned);
+                if (bestCandidate < 0) break;
+                members[filled++] = bestCandidate;
+                assigned[bestCandidate] = true;
+                frontier.pushEdges(g, bestCandidate, assigned);
+            }
+
+            podEnds[from + podCount++] = filled;
+        }
+        return podCount;
+    }
+
+    /**
+     * Labels connected components with a lock-free union-find, scanning edges in parallel.
+     * Roots are always linked under the smaller id, so each label is the smallest id
+     * in its component.
+     *
+     * @return component root for each student id
+     */
+    private static int[] labelComponents(CompactStudentGraph g) {
+        int n = g.size();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int id = 0; id < n; id++) parent.set(id, id);
+
+        IntStream.range(0, n).parallel().forEach(u -> {
+            for (int e = g.firstEdge(u); e < g.endEdge(u); e++) {
+                int v = g.target(e);
+                if (v > u) union(parent, u, v);
+            }
+        });
+
+        int[] root = new int[n];
+        for (int id = 0; id < n; id++) root[id] = find(parent, id);
+        return root;
+    }
+
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            a = find(parent, a);
+            b = find(parent, b);
+            if (a == b) return;
+            if (a < b) {
+                int t = a;
+                a = b;
+                b = t;
+            }
+            if (parent.compareAndSet(a, a, b)) return;
+        }
+    }
+
+    private static int find(AtomicIntegerArray parent, int x) {
+        while (true) {
+            int p = parent.get(x);
+            if (p == x) return x;
+            int grandparent = parent.get(p);
+            // Path halving; losing the race only skips a shortcut
+            if (p != grandparent) parent.compareAndSet(x, p, grandparent);
+            x = grandparent;
         }
+    }
+
+    /**
+     * Orders students the way repeated starter picks would: highest total connection
+     * strength first, ties going to whoever a HashSet of all students iterates first.
+     * Totals include edges to assigned students, so the order never changes as pods form.
+     */
+    private int[] starterOrder(CompactStudentGraph g) {
+        int n = g.size();
+        int[] rank = new int[n];
+        // Take the students from g itself; the graph may have changed since g was built
+        List<UniversityStudent> students = new ArrayList<>(n);
+        for (int id = 0; id < n; id++) students.add(g.student(id));
+        int r = 0;
+        for (UniversityStudent s : new HashSet<>(students)) rank[g.idOf(s)] = r++;
 
-        int num = 1;
-        for (List<UniversityStudent> pod : allPods) {
-            System.out.println("Pod " + num + ":");
-            for (UniversityStudent s : pod) System.out.println("   " + s.getName());
-            System.out.println();
-            num++;
+        long[] sums = new long[n];
+        Integer[] order = new Integer[n];
+        for (int id = 0; id < n; id++) {
+            for (int e = g.firstEdge(id); e < g.endEdge(id); e++) sums[id] += g.weight(e);
+            order[id] = id;
         }
+        Arrays.sort(order, (a, b) -> sums[a] != sums[b] ? Long.compare(sums[b], sums[a]) : Integer.compare(rank[a], rank[b]));
+
+        int[] starters = new int[n];
+        for (int i = 0; i < n; i++) starters[i] = order[i];
+        return starters;
     }
 
     /**
-     * Picks the student with highest total connection strength as pod starter.
+     * Min-heap of candidate edges out of the current pod. Each entry packs the
+     * inverted weight above a push sequence number; members push their edges in
+     * pod order and neighbor order, so ties resolve exactly as a scan of the pod
+     * would: first member, then first edge.
      */
-    private UniversityStudent pickStrongestStarter(Set<UniversityStudent> unassigned) {
-        UniversityStudent best = null;
-        int bestSum = -1;
-        for (UniversityStudent s : unassigned) {
-            int sum = 0;
-            for (StudentGraph.Edge e : graph.getNeighbors(s)) sum += e.weight;
-            if (sum > bestSum) {
-                bestSum = sum;
-                best = s;
+    private static class FrontierHeap {
+        private long[] heap = new long[16];
+        private int size;
+        private int[] neighbors = new int[16];
+        private int pushed;
+
+        void clear() {
+            size = 0;
+            pushed = 0;
+        }
+
+        void pushEdges(CompactStudentGraph g, int member, boolean[] assigned) {
+            for (int e = g.firstEdge(member); e < g.endEdge(member); e++) {
+                int neighbor = g.target(e);
+                if (assigned[neighbor]) continue;
+                if (pushed == neighbors.length) neighbors = Arrays.copyOf(neighbors, pushed * 2);
+                neighbors[pushed] = neighbor;
+                push(((long) (Integer.MAX_VALUE - g.weight(e)) << 32) | pushed);
+                pushed++;
+            }
+        }
+
+        /**
+         * @return strongest-connected unassigned neighbor of the pod, or -1 if none
+         */
+        int pollUnassigned(boolean[] assigned) {
+            while (size > 0) {
+                int neighbor = neighbors[(int) poll()];
+                if (!assigned[neighbor]) return neighbor;
+            }
+            return -1;
+        }
+
+        private void push(long key) {
+            if (size == heap.length) heap = Arrays.copyOf(heap, size * 2);
+            int p = size++;
+            while (p > 0 && heap[(p - 1) >>> 1] > key) {
+                heap[p] = heap[(p - 1) >>> 1];
+                p = (p - 1) >>> 1;
+            }
+            heap[p] = key;
+        }
+
+        private long poll() {
+            long top = heap[0];
+            long last = heap[--size];
+            int p = 0;
+            while (2 * p + 1 < size) {
+                int child = 2 * p + 1;
+                if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+                if (heap[child] >= last) break;
+                heap[p] = heap[child];
+                p = child;
             }
+            heap[p] = last;
+            return top;
         }
-        return best;
     }
 }
@@ -0,0 +1,82 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ * Writes the pod report in a single pass, buffering output into large
+ * chunks so the destination sees a few big writes instead of one per line.
+ */
+public class PodReportWriter {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Writes the report to any Appendable, such as System.out or a StringBuilder.
+     *
+     * @param pods pods to report
+     * @param out destination
+     * @throws IOException if the destination fails
+     */
+    public static void write(PodAssignment pods, Appendable out) throws IOException {
+        write(pods, out::append);
+    }
+
+    /**
+     * Writes the report to an event sink, one chunk per write.
+     *
+     * @param pods pods to report
+     * @param sink destination
+     */
+    public static void write(PodAssignment pods, EventSink sink) {
+        write(pods, chunk -> sink.write(chunk.toString()));
+    }
+
+    /**
+     * Writes the report to a channel as UTF-8.
+     *
+     * @param pods pods to report
+     * @param channel destination
+     * @throws IOException if the channel fails
+     */
+    public static void write(PodAssignment pods, WritableByteChannel channel) throws IOException {
+        write(pods, chunk -> writeFully(channel, chunk));
+    }
+
+    /**
+     * Destination for finished chunks of the report. The chunk is reused once
+     * the call returns.
+     */
+    private interface ChunkOutput<E extends Exception> {
+        void write(CharSequence chunk) throws E;
+    }
+
+    /**
+     * Formats every pod into the buffer, handing it over whenever it fills up.
+     */
+    private static <E extends Exception> void write(PodAssignment pods, ChunkOutput<E> out) throws E {
+        StringBuilder buffer = new StringBuilder(CHUNK_SIZE);
+        for (int p = 0; p < pods.podCount(); p++) {
+            appendPod(pods, p, buffer);
+            if (buffer.length() >= CHUNK_SIZE) {
+                out.write(buffer);
+                buffer.setLength(0);
+            }
+        }
+        if (buffer.length() > 0) out.write(buffer);
+    }
+
+    private static void appendPod(PodAssignment pods, int pod, StringBuilder buffer) {
+        String newline = System.lineSeparator();
+        buffer.append("Pod ").append(pod + 1).append(':').append(newline);
+        for (int k = 0; k < pods.podSize(pod); k++) {
+            buffer.append("   ").append(pods.graph().student(pods.member(pod, k)).getName()).append(newline);
+        }
+        buffer.append(newline);
+    }
+
+    private static void writeFully(WritableByteChannel channel, CharSequence text) throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(text));
+        while (bytes.hasRemaining()) channel.write(bytes);
+    }
+}
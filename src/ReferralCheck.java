@@ -0,0 +1,221 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Checks the referral searches against a plain Dijkstra over
+ * {@link StudentGraph#getNeighbors}, and top-k paths against exhaustive
+ * enumeration on small cohorts. Ties between equal-cost paths may resolve
+ * differently, so paths are compared by cost and checked for validity.
+ */
+public class ReferralCheck {
+
+    public static void main(String[] args) throws Exception {
+        run();
+        CheckSupport.finish("ReferralCheck");
+    }
+
+    static void run() throws Exception {
+        checkSingleAndAll();
+        checkPathBetween();
+        checkTopPaths();
+        checkTopCost();
+        checkService();
+    }
+
+    /**
+     * Cheapest cost from start to any student accepted by target, or -1.
+     */
+    static int referenceCost(StudentGraph graph, UniversityStudent start, Set<UniversityStudent> targets) {
+        Map<UniversityStudent, Integer> dist = new HashMap<>();
+        PriorityQueue<Object[]> queue = new PriorityQueue<>(Comparator.comparingInt(o -> (Integer) o[1]));
+        dist.put(start, 0);
+        queue.add(new Object[]{start, 0});
+        Set<UniversityStudent> settled = new HashSet<>();
+        while (!queue.isEmpty()) {
+            Object[] top = queue.poll();
+            UniversityStudent s = (UniversityStudent) top[0];
+            int d = (Integer) top[1];
+            if (!settled.add(s)) continue;
+            if (targets.contains(s)) return d;
+            for (StudentGraph.Edge e : graph.getNeighbors(s)) {
+                int next = d + 100 - e.weight;
+                if (next < dist.getOrDefault(e.neighbor, Integer.MAX_VALUE)) {
+                    dist.put(e.neighbor, next);
+                    queue.add(new Object[]{e.neighbor, next});
+                }
+            }
+        }
+        return -1;
+    }
+
+    static Set<UniversityStudent> holders(List<UniversityStudent> students, String internship) {
+        Set<UniversityStudent> holders = new HashSet<>();
+        for (UniversityStudent s : students) {
+            if (s.getPreviousInternships().contains(internship)) holders.add(s);
+        }
+        return holders;
+    }
+
+    private static boolean validPath(List<UniversityStudent> path, UniversityStudent start, String internship) {
+        return !path.isEmpty() && path.get(0) == start
+                && path.get(path.size() - 1).getPreviousInternships().contains(internship)
+                && new HashSet<>(path).size() == path.size();
+    }
+
+    private static void checkSingleAndAll() {
+        String[] companies = {"Google", "NASA", "Apple", "Rare1", "Rare2", "Nobody Holds This"};
+        for (int seed = 0; seed < 6; seed++) {
+            List<UniversityStudent> students = seed % 2 == 0 ? CheckSupport.cohort(50 + seed * 150, seed) : CheckSupport.sparse(3000, seed);
+            CheckSupport.randomRoommates(students, new Random(seed));
+            StudentGraph graph = new StudentGraph(students);
+            ReferralPathFinder finder = new ReferralPathFinder(graph);
+            for (String company : companies) {
+                Set<UniversityStudent> holders = holders(students, company);
+                ReferralPathFinder.ReferralForest forest = finder.findAllReferralPaths(company);
+                for (int i = 0; i < Math.min(students.size(), 300); i++) {
+                    UniversityStudent s = students.get(i);
+                    int expected = referenceCost(graph, s, holders);
+                    List<UniversityStudent> path = finder.findReferralPath(s, company);
+                    CheckSupport.expect(CheckSupport.pathCost(graph, path) == expected
+                                    && (path.isEmpty() || validPath(path, s, company)),
+                            "referral path from " + s.getName() + " to " + company + ", seed " + seed);
+                    List<UniversityStudent> fromForest = forest.pathFrom(s);
+                    CheckSupport.expect(CheckSupport.pathCost(graph, fromForest) == expected
+                                    && forest.cost(graph.compact().idOf(s)) == expected,
+                            "forest path from " + s.getName() + " to " + company + ", seed " + seed);
+                }
+            }
+        }
+    }
+
+    private static void checkService() throws Exception {
+        List<UniversityStudent> students = CheckSupport.cohort(1000, 5);
+        StudentGraph graph = new StudentGraph(students);
+        ReferralQueryService service = new ReferralQueryService(graph, 64);
+        ReferralPathFinder finder = new ReferralPathFinder(graph);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long seed = t;
+            results.add(pool.submit(() -> {
+                int wrong = 0;
+                Random r = new Random(seed);
+                for (int i = 0; i < 2000; i++) {
+                    UniversityStudent s = students.get(r.nextInt(50));
+                    String company = r.nextBoolean() ? "Rare1" : "Google";
+                    if (CheckSupport.pathCost(graph, service.findReferralPath(s, company))
+                            != CheckSupport.pathCost(graph, finder.findReferralPath(s, company))) wrong++;
+                }
+                return wrong;
+            }));
+        }
+        for (Future<Integer> f : results) CheckSupport.expect(f.get() == 0, "concurrent service answer differs");
+        pool.shutdown();
+
+        // Updating the graph must drop cached answers
+        UniversityStudent start = students.get(0);
+        CheckSupport.expect(service.findReferralPath(start, "Unique").isEmpty(), "path to an unheld company");
+        UniversityStudent holder = new UniversityStudent("Holder", start.getAge(), "M", 1, start.getMajor(), 3.0,
+                new ArrayList<>(), List.of("Unique"));
+        graph.addStudent(holder);
+        List<UniversityStudent> path = service.findReferralPath(start, "Unique");
+        CheckSupport.expect(path.size() == 2 && path.get(1) == holder, "cached path survived addStudent");
+        graph.removeStudent(holder);
+        CheckSupport.expect(service.findReferralPath(start, "Unique").isEmpty(), "cached path survived removeStudent");
+
+        StudentGraph other = new StudentGraph(List.of(start, holder));
+        service.replaceGraph(other);
+        CheckSupport.expect(service.findReferralPath(start, "Unique").size() == 2, "cache survived replaceGraph");
+    }
+
+    /**
+     * Costs of every loopless path from start that ends at the first holder it reaches.
+     */
+    private static void enumerate(StudentGraph graph, UniversityStudent current, String internship,
+                                  LinkedHashSet<UniversityStudent> path, List<Integer> costs) {
+        if (current.getPreviousInternships().contains(internship)) {
+            costs.add(CheckSupport.pathCost(graph, new ArrayList<>(path)));
+            return;
+        }
+        for (StudentGraph.Edge e : graph.getNeighbors(current)) {
+            if (path.add(e.neighbor)) {
+                enumerate(graph, e.neighbor, internship, path, costs);
+                path.remove(e.neighbor);
+            }
+        }
+    }
+
+    private static void checkTopPaths() {
+        for (int seed = 0; seed < 40; seed++) {
+            List<UniversityStudent> students = CheckSupport.cohort(9, seed);
+            StudentGraph graph = new StudentGraph(students);
+            ReferralPathFinder finder = new ReferralPathFinder(graph);
+            for (String company : new String[]{"Google", "NASA", "Apple"}) {
+                for (UniversityStudent start : students) {
+                    List<Integer> costs = new ArrayList<>();
+                    LinkedHashSet<UniversityStudent> path = new LinkedHashSet<>();
+                    path.add(start);
+                    enumerate(graph, start, company, path, costs);
+                    Collections.sort(costs);
+                    int k = 1 + seed % 6;
+                    List<List<UniversityStudent>> top = finder.findTopReferralPaths(start, company, k);
+                    boolean same = top.size() == Math.min(k, costs.size());
+                    for (int i = 0; same && i < top.size(); i++) {
+                        List<UniversityStudent> p = top.get(i);
+                        same = validPath(p, start, company) && CheckSupport.pathCost(graph, p) == costs.get(i);
+                        for (int m = 0; same && m < p.size() - 1; m++) {
+                            same = !p.get(m).getPreviousInternships().contains(company);
+                        }
+                    }
+                    CheckSupport.expect(same && new HashSet<>(top).size() == top.size(),
+                            "top " + k + " paths from " + start.getName() + " to " + company + ", seed " + seed);
+                }
+            }
+        }
+    }
+
+    /**
+     * Top-k for a rare company should cost at most half as much as k single
+     * queries, since the spur searches are guided by one search from the holders
+     * instead of each sweeping the start's component. Takes the best of a few
+     * rounds of each so JIT warm-up and GC pauses do not decide the outcome.
+     */
+    private static void checkTopCost() {
+        List<UniversityStudent> students = CheckSupport.cohort(1500, 3);
+        ReferralPathFinder finder = new ReferralPathFinder(new StudentGraph(students));
+        List<UniversityStudent> starts = students.subList(0, 20);
+        int k = 5;
+        long bestSingles = Long.MAX_VALUE;
+        long bestTop = Long.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            long begin = System.nanoTime();
+            for (UniversityStudent start : starts) {
+                for (int q = 0; q < k; q++) finder.findReferralPath(start, "Rare1");
+            }
+            bestSingles = Math.min(bestSingles, System.nanoTime() - begin);
+
+            begin = System.nanoTime();
+            for (UniversityStudent start : starts) finder.findTopReferralPaths(start, "Rare1", k);
+            bestTop = Math.min(bestTop, System.nanoTime() - begin);
+        }
+        CheckSupport.expect(bestTop <= bestSingles / 2, "top " + k + " for a rare company took "
+                + bestTop / 1_000_000 + " ms, " + k + " single queries took " + bestSingles / 1_000_000 + " ms");
+    }
+
+    private static void checkPathBetween() {
+        for (int seed = 0; seed < 5; seed++) {
+            List<UniversityStudent> students = seed % 2 == 0 ? CheckSupport.cohort(600, seed) : CheckSupport.sparse(3000, seed);
+            StudentGraph graph = new StudentGraph(students);
+            ReferralPathFinder finder = new ReferralPathFinder(graph);
+            Random r = new Random(seed);
+            for (int q = 0; q < 200; q++) {
+                UniversityStudent from = students.get(r.nextInt(students.size()));
+                UniversityStudent to = students.get(r.nextInt(students.size()));
+                List<UniversityStudent> path = finder.findPathBetween(from, to);
+                boolean ends = path.isEmpty() || (path.get(0) == from && path.get(path.size() - 1) == to);
+                CheckSupport.expect(ends && CheckSupport.pathCost(graph, path) == referenceCost(graph, from, Set.of(to)),
+                        "path between " + from.getName() + " and " + to.getName() + ", seed " + seed);
+            }
+        }
+    }
+}
@@ -3,10 +3,25 @@ import java.util.*;
 /**
  * Finds referral paths to students with specific internships using Dijkstra's algorithm.
  * Uses inverted weights so stronger connections = shorter paths.
+ * Searches run over the graph's CSR form with per-thread reusable workspaces,
+ * so a query only touches the part of the graph it explores.
+ * Rare companies are searched in reverse, from all holders toward the start.
  */
 public class ReferralPathFinder {
 
-    private StudentGraph graph;
+    /**
+     * A company is rare when at most 1 in this many students holds it. Forward
+     * searches for rare companies tend to sweep most of the start's component
+     * before reaching a holder, so those are searched from the holders instead.
+     */
+    private static final int RARE_TARGET_RATIO = 100;
+
+    private static final ThreadLocal<SearchWorkspace> WORKSPACES = ThreadLocal.withInitial(SearchWorkspace::new);
+    // Second workspace for the backward half of point-to-point searches, and for
+    // the holder distances that guide top-k spur searches
+    private static final ThreadLocal<SearchWorkspace> BACKWARD_WORKSPACES = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    private final StudentGraph graph;
 
     public ReferralPathFinder(StudentGraph graph) {
         this.graph = graph;
@@ -14,85 +29,463 @@ public class ReferralPathFinder {
 
     /**
      * Finds the path with strongest connections to someone with the target internship.
-     * 
+     *
      * @param start starting student
      * @param internship company to find
      * @return path to a student with that internship, or empty list if none found
      */
     public List<UniversityStudent> findReferralPath(UniversityStudent start, String internship) {
-        // Priority queue: (distance, student)
-        PriorityQueue<Node> pq = new PriorityQueue<>(Comparator.comparingInt(n -> n.distance));
-        Map<UniversityStudent, Integer> distances = new HashMap<>();
-        Map<UniversityStudent, UniversityStudent> previous = new HashMap<>();
-        Set<UniversityStudent> visited = new HashSet<>();
-        
-        // Initialize distances
-        for (UniversityStudent s : graph.getAllNodes()) {
-            distances.put(s, Integer.MAX_VALUE);
-        }
-        distances.put(start, 0);
-        pq.add(new Node(start, 0));
-        
+        CompactStudentGraph g = graph.compact();
+        int source = g.idOf(start);
+        if (source < 0) {
+            // Not in the graph: only the start itself can be a match
+            return start.getPreviousInternships().contains(internship)
+                    ? Collections.singletonList(start) : Collections.emptyList();
+        }
+
+        int company = g.companyId(internship);
+        if (company < 0) return Collections.emptyList();
+        if (g.hasInternship(source, company)) return Collections.singletonList(start);
+
+        SearchWorkspace ws = WORKSPACES.get();
+        ws.reset(g.size());
+        if ((long) g.holderCount(company) * RARE_TARGET_RATIO <= g.size()) {
+            return searchFromHolders(g, ws, source, company);
+        }
+        return searchFromStart(g, ws, source, company);
+    }
+
+    /**
+     * Dijkstra from the start, stopping at the first settled holder.
+     */
+    private static List<UniversityStudent> searchFromStart(CompactStudentGraph g, SearchWorkspace ws,
+                                                           int source, int company) {
+        IndexedMinHeap pq = ws.heap();
+        ws.relax(source, 0, -1);
+
         while (!pq.isEmpty()) {
-            Node current = pq.poll();
-            UniversityStudent currentStudent = current.student;
-            
-            if (visited.contains(currentStudent)) continue;
-            visited.add(currentStudent);
-            
+            int current = pq.poll();
+            ws.settle(current);
+
             // Check if this student has the target internship
-            if (currentStudent.getPreviousInternships().contains(internship)) {
-                return reconstructPath(previous, start, currentStudent);
+            if (g.hasInternship(current, company)) {
+                return reconstructPath(g, ws, current);
             }
-            
+
             // Explore neighbors
-            for (StudentGraph.Edge edge : graph.getNeighbors(currentStudent)) {
-                UniversityStudent neighbor = edge.neighbor;
-                
-                if (visited.contains(neighbor)) continue;
-                
+            int currentDistance = ws.distance(current);
+            for (int e = g.firstEdge(current); e < g.endEdge(current); e++) {
+                int neighbor = g.target(e);
+                if (ws.isSettled(neighbor)) continue;
+
                 // Invert weight: higher connection = lower cost
-                int invertedWeight = 100 - edge.weight;
-                int newDistance = distances.get(currentStudent) + invertedWeight;
-                
-                if (newDistance < distances.get(neighbor)) {
-                    distances.put(neighbor, newDistance);
-                    previous.put(neighbor, currentStudent);
-                    pq.add(new Node(neighbor, newDistance));
+                int newDistance = currentDistance + 100 - g.weight(e);
+                if (newDistance < ws.distance(neighbor)) {
+                    ws.relax(neighbor, newDistance, current);
                 }
             }
         }
-        
+
         return Collections.emptyList();
     }
-    
+
+    /**
+     * Multi-source search from the holders that stops once the start is settled.
+     * Costs are symmetric, so the start's distance equals the cost of its best
+     * forward path, and following predecessors from the start walks that path
+     * toward the nearest holder.
+     */
+    private static List<UniversityStudent> searchFromHolders(CompactStudentGraph g, SearchWorkspace ws,
+                                                             int source, int company) {
+        runFromHolders(g, ws, company, source);
+        if (!ws.isSettled(source)) return Collections.emptyList();
+
+        List<UniversityStudent> path = new ArrayList<>();
+        for (int s = source; s != -1; s = ws.previous(s)) path.add(g.student(s));
+        return path;
+    }
+
+    /**
+     * Dijkstra seeded with every holder of the company at distance 0.
+     * Runs until {@code stopAt} is settled, or over everything reachable when it is -1.
+     */
+    private static void runFromHolders(CompactStudentGraph g, SearchWorkspace ws, int company, int stopAt) {
+        IndexedMinHeap pq = ws.heap();
+        for (int k = 0; k < g.holderCount(company); k++) {
+            ws.relax(g.holder(company, k), 0, -1);
+        }
+
+        while (!pq.isEmpty()) {
+            int current = pq.poll();
+            ws.settle(current);
+            if (current == stopAt) return;
+
+            int currentDistance = ws.distance(current);
+            for (int e = g.firstEdge(current); e < g.endEdge(current); e++) {
+                int neighbor = g.target(e);
+                if (ws.isSettled(neighbor)) continue;
+
+                int newDistance = currentDistance + 100 - g.weight(e);
+                if (newDistance < ws.distance(neighbor)) {
+                    ws.relax(neighbor, newDistance, current);
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds the best referral path from every student to the nearest holder of the
+     * internship with a single multi-source search, instead of one search per student.
+     *
+     * @param internship company to find
+     * @return next-hop table from which any student's path can be read
+     */
+    public ReferralForest findAllReferralPaths(String internship) {
+        CompactStudentGraph g = graph.compact();
+        int[] next = new int[g.size()];
+        int[] costs = new int[g.size()];
+        Arrays.fill(next, -1);
+        Arrays.fill(costs, -1);
+
+        int company = g.companyId(internship);
+        if (company >= 0) {
+            SearchWorkspace ws = WORKSPACES.get();
+            ws.reset(g.size());
+            runFromHolders(g, ws, company, -1);
+            for (int id = 0; id < g.size(); id++) {
+                if (ws.isSettled(id)) {
+                    next[id] = ws.previous(id);
+                    costs[id] = ws.distance(id);
+                }
+            }
+        }
+        return new ReferralForest(g, internship, next, costs);
+    }
+
+    /**
+     * Finds up to {@code k} loopless referral paths in order of increasing cost,
+     * using Yen's algorithm on the same {@code 100 - weight} costs. The first path
+     * costs the same as the one {@link #findReferralPath} returns. Each path ends
+     * at the first holder it reaches, so callers can skip an unresponsive contact
+     * by taking the next alternative.
+     *
+     * Following Lawler, a path only spurs from the point where it left its parent;
+     * earlier spurs were already explored when the parent was accepted. For rare
+     * companies, one search from all holders gives every student's exact distance
+     * to the nearest holder. Spur searches use that as an A* estimate, so they head
+     * straight for a holder unless the banned students and hops force a detour.
+     * Common companies are reached within a few hops anyway, so their spur searches
+     * run without an estimate. Either way a spur search stops as soon as it cannot
+     * beat the candidates that are already good enough to be returned.
+     *
+     * @param start starting student
+     * @param internship company to find
+     * @param k maximum number of paths
+     * @return paths ordered by cost, best first; empty if none found
+     */
+    public List<List<UniversityStudent>> findTopReferralPaths(UniversityStudent start, String internship, int k) {
+        List<List<UniversityStudent>> result = new ArrayList<>();
+        if (k <= 0) return result;
+        CompactStudentGraph g = graph.compact();
+        int source = g.idOf(start);
+        int company = g.companyId(internship);
+        if (source < 0 || company < 0 || g.hasInternship(source, company)) {
+            List<UniversityStudent> only = findReferralPath(start, internship);
+            if (!only.isEmpty()) result.add(only);
+            return result;
+        }
+
+        SearchWorkspace ws = WORKSPACES.get();
+        SearchWorkspace toHolders = null;
+        RankedPath first;
+        if ((long) g.holderCount(company) * RARE_TARGET_RATIO <= g.size()) {
+            toHolders = BACKWARD_WORKSPACES.get();
+            toHolders.reset(g.size());
+            runFromHolders(g, toHolders, company, -1);
+            if (!toHolders.isSettled(source)) return result;
+
+            // The best path follows the holder search's predecessors from the start
+            int length = 0;
+            for (int s = source; s != -1; s = toHolders.previous(s)) length++;
+            int[] nodes = new int[length];
+            for (int s = source, p = 0; s != -1; s = toHolders.previous(s), p++) nodes[p] = s;
+            first = new RankedPath(nodes, toHolders.distance(source), 0);
+        } else {
+            ws.clearMarks(g.size());
+            first = spurSearch(g, ws, null, source, company, new int[0], 0, new int[0], 0, Integer.MAX_VALUE);
+            if (first == null) return result;
+        }
+
+        List<RankedPath> accepted = new ArrayList<>();
+        // Only the best k - accepted candidates can still be returned; the rest are dropped
+        TreeSet<RankedPath> candidates = new TreeSet<>();
+        Set<RankedPath> seen = new HashSet<>();
+        accepted.add(first);
+        seen.add(first);
+        int[] bannedNext = new int[8];
+
+        while (accepted.size() < k) {
+            RankedPath last = accepted.get(accepted.size() - 1);
+            int needed = k - accepted.size();
+            int rootCost = 0;
+            for (int i = 0; i < last.deviation; i++) rootCost += hopCost(g, last.nodes[i], last.nodes[i + 1]);
+            for (int i = last.deviation; i < last.nodes.length - 1; i++) {
+                // Ban root nodes before the spur, and every next hop already taken from this root
+                ws.clearMarks(g.size());
+                for (int r = 0; r < i; r++) ws.mark(last.nodes[r]);
+                int banned = 0;
+                for (RankedPath p : accepted) {
+                    if (p.nodes.length > i + 1 && p.sharesPrefix(last, i + 1)) {
+                        if (banned == bannedNext.length) bannedNext = Arrays.copyOf(bannedNext, banned * 2);
+                        bannedNext[banned++] = p.nodes[i + 1];
+                    }
+                }
+
+                int bound = candidates.size() == needed ? candidates.last().cost : Integer.MAX_VALUE;
+                RankedPath candidate = spurSearch(g, ws, toHolders, last.nodes[i], company, bannedNext, banned,
+                                                  last.nodes, rootCost, bound);
+                if (candidate != null && seen.add(candidate)) {
+                    candidates.add(candidate);
+                    if (candidates.size() > needed) candidates.pollLast();
+                }
+                rootCost += hopCost(g, last.nodes[i], last.nodes[i + 1]);
+            }
+            if (candidates.isEmpty()) break;
+            accepted.add(candidates.pollFirst());
+        }
+
+        for (RankedPath p : accepted) {
+            List<UniversityStudent> path = new ArrayList<>(p.nodes.length);
+            for (int id : p.nodes) path.add(g.student(id));
+            result.add(path);
+        }
+        return result;
+    }
+
     /**
-     * Reconstruct the path from start to target using the previous map.
+     * Finds the strongest referral chain from one student to another specific student,
+     * using bidirectional Dijkstra on the same {@code 100 - weight} costs. The two
+     * searches grow from both ends, always advancing the smaller frontier, and stop
+     * once the best meeting found cannot be beaten.
+     *
+     * @param from starting student
+     * @param to target student
+     * @return path from {@code from} to {@code to}, or empty list if they are not connected
      */
-    private List<UniversityStudent> reconstructPath(Map<UniversityStudent, UniversityStudent> previous, 
-                                                     UniversityStudent start, 
-                                                     UniversityStudent target) {
-        LinkedList<UniversityStudent> path = new LinkedList<>();
-        UniversityStudent current = target;
-        
-        while (current != null) {
-            path.addFirst(current);
-            current = previous.get(current);
-        }
-        
+    public List<UniversityStudent> findPathBetween(UniversityStudent from, UniversityStudent to) {
+        CompactStudentGraph g = graph.compact();
+        int source = g.idOf(from);
+        int target = g.idOf(to);
+        if (from.equals(to)) return Collections.singletonList(from);
+        if (source < 0 || target < 0) return Collections.emptyList();
+
+        SearchWorkspace forward = WORKSPACES.get();
+        SearchWorkspace backward = BACKWARD_WORKSPACES.get();
+        forward.reset(g.size());
+        backward.reset(g.size());
+        forward.relax(source, 0, -1);
+        backward.relax(target, 0, -1);
+
+        int best = Integer.MAX_VALUE;
+        int meeting = -1;
+        while (!forward.heap().isEmpty() && !backward.heap().isEmpty()) {
+            if ((long) forward.heap().peekKey() + backward.heap().peekKey() >= best) break;
+
+            boolean expandForward = forward.heap().size() <= backward.heap().size();
+            SearchWorkspace side = expandForward ? forward : backward;
+            SearchWorkspace other = expandForward ? backward : forward;
+
+            int current = side.heap().poll();
+            side.settle(current);
+            int currentDistance = side.distance(current);
+            for (int e = g.firstEdge(current); e < g.endEdge(current); e++) {
+                int neighbor = g.target(e);
+                if (side.isSettled(neighbor)) continue;
+
+                int newDistance = currentDistance + 100 - g.weight(e);
+                if (newDistance < side.distance(neighbor)) {
+                    side.relax(neighbor, newDistance, current);
+                    int otherDistance = other.distance(neighbor);
+                    if (otherDistance != Integer.MAX_VALUE && newDistance + otherDistance < best) {
+                        best = newDistance + otherDistance;
+                        meeting = neighbor;
+                    }
+                }
+            }
+        }
+        if (meeting < 0) return Collections.emptyList();
+
+        List<UniversityStudent> path = reconstructPath(g, forward, meeting);
+        for (int current = backward.previous(meeting); current != -1; current = backward.previous(current)) {
+            path.add(g.student(current));
+        }
         return path;
     }
-    
+
+    /**
+     * A* from {@code spur} to the nearest holder, skipping marked students and the
+     * first {@code bannedCount} next hops out of the spur. The estimate is each
+     * student's distance in {@code toHolders}, or 0 when that is null. It never
+     * overstates the remaining cost once students and hops are banned, so the
+     * first holder settled is still the nearest. The result is prefixed with
+     * {@code root[0..spurIndex)}, where spurIndex is the spur's position in root.
+     *
+     * @param bound give up once every remaining path would cost more than this
+     * @return the full path, or null if no holder is reachable within the bound
+     */
+    private static RankedPath spurSearch(CompactStudentGraph g, SearchWorkspace ws, SearchWorkspace toHolders,
+                                         int spur, int company, int[] bannedNext, int bannedCount,
+                                         int[] root, int rootCost, int bound) {
+        ws.reset(g.size());
+        IndexedMinHeap pq = ws.heap();
+        ws.relax(spur, rootCost, -1, rootCost + remaining(toHolders, spur));
+
+        while (!pq.isEmpty()) {
+            if (pq.peekKey() > bound) return null;
+            int current = pq.poll();
+            ws.settle(current);
+
+            if (g.hasInternship(current, company)) {
+                int spurIndex = 0;
+                while (spurIndex < root.length && root[spurIndex] != spur) spurIndex++;
+                int length = 0;
+                for (int s = current; s != -1; s = ws.previous(s)) length++;
+                int[] nodes = Arrays.copyOf(root, spurIndex + length);
+                for (int s = current, p = nodes.length - 1; s != -1; s = ws.previous(s), p--) nodes[p] = s;
+                return new RankedPath(nodes, ws.distance(current), spurIndex);
+            }
+
+            int currentDistance = ws.distance(current);
+            for (int e = g.firstEdge(current); e < g.endEdge(current); e++) {
+                int neighbor = g.target(e);
+                // Students the holder search never reached cannot lead to a holder
+                if (ws.isSettled(neighbor) || ws.isMarked(neighbor)) continue;
+                if (toHolders != null && !toHolders.isSettled(neighbor)) continue;
+                if (current == spur && contains(bannedNext, bannedCount, neighbor)) continue;
+
+                int newDistance = currentDistance + 100 - g.weight(e);
+                if (newDistance < ws.distance(neighbor)) {
+                    ws.relax(neighbor, newDistance, current, newDistance + remaining(toHolders, neighbor));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return lower bound on the cost from the student to a holder
+     */
+    private static int remaining(SearchWorkspace toHolders, int id) {
+        return toHolders == null ? 0 : toHolders.distance(id);
+    }
+
     /**
-     * Node for Dijkstra's priority queue.
+     * @return inverted-weight cost of the edge between two adjacent students
      */
-    private static class Node {
-        UniversityStudent student;
-        int distance;
-        
-        Node(UniversityStudent student, int distance) {
-            this.student = student;
-            this.distance = distance;
+    private static int hopCost(CompactStudentGraph g, int from, int to) {
+        for (int e = g.firstEdge(from); e < g.endEdge(from); e++) {
+            if (g.target(e) == to) return 100 - g.weight(e);
+        }
+        throw new IllegalStateException("No edge between " + g.student(from).getName() + " and " + g.student(to).getName());
+    }
+
+    private static boolean contains(int[] values, int count, int value) {
+        for (int i = 0; i < count; i++) {
+            if (values[i] == value) return true;
         }
+        return false;
+    }
+
+    /**
+     * Reconstruct the path from the search source to target using the predecessor links.
+     */
+    private static List<UniversityStudent> reconstructPath(CompactStudentGraph g, SearchWorkspace ws, int target) {
+        List<UniversityStudent> path = new ArrayList<>();
+        for (int current = target; current != -1; current = ws.previous(current)) {
+            path.add(g.student(current));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Result of {@link #findAllReferralPaths}: for each student id, the next student
+     * on its best path toward a holder. Holders and unreachable students have no next hop.
+     */
+    public static class ReferralForest {
+        private final CompactStudentGraph graph;
+        private final String internship;
+        private final int[] next;
+        private final int[] costs;
+
+        ReferralForest(CompactStudentGraph graph, String internship, int[] next, int[] costs) {
+            this.graph = graph;
+            this.internship = internship;
+            this.next = next;
+            this.costs = costs;
+        }
+
+        /**
+         * @return id of the next student toward a holder, or -1 for holders and unreachable students
+         */
+        public int next(int id) { return next[id]; }
+
+        /**
+         * @return inverted-weight cost of the student's best path, or -1 if no holder is reachable
+         */
+        public int cost(int id) { return costs[id]; }
+
+        /**
+         * Follows next hops from the student to its nearest holder.
+         *
+         * @param start starting student
+         * @return same path findReferralPath would return, or empty list if none found
+         */
+        public List<UniversityStudent> pathFrom(UniversityStudent start) {
+            int id = graph.idOf(start);
+            if (id < 0) {
+                return start.getPreviousInternships().contains(internship)
+                        ? Collections.singletonList(start) : Collections.emptyList();
+            }
+            if (costs[id] < 0) return Collections.emptyList();
+
+            List<UniversityStudent> path = new ArrayList<>();
+            for (int current = id; current != -1; current = next[current]) path.add(graph.student(current));
+            return path;
+        }
+    }
+
+    /**
+     * A path of student ids with its total cost and the index where it
+     * deviated from the path it was derived from. Ordered by cost, then ids.
+     */
+    private static class RankedPath implements Comparable<RankedPath> {
+        final int[] nodes;
+        final int cost;
+        final int deviation;
+
+        RankedPath(int[] nodes, int cost, int deviation) {
+            this.nodes = nodes;
+            this.cost = cost;
+            this.deviation = deviation;
+        }
+
+        boolean sharesPrefix(RankedPath other, int length) {
+            return Arrays.equals(nodes, 0, length, other.nodes, 0, length);
+        }
+
+        @Override
+        public int compareTo(RankedPath other) {
+            if (cost != other.cost) return Integer.compare(cost, other.cost);
+            return Arrays.compare(nodes, other.nodes);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof RankedPath && Arrays.equals(nodes, ((RankedPath) obj).nodes);
+        }
+
+        @Override
+        public int hashCode() { return Arrays.hashCode(nodes); }
     }
-}
\ No newline at end of file
+}
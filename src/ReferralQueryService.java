@@ -0,0 +1,139 @@
+import java.util.*;
+
+/**
+ * Thread-safe front end for {@link ReferralPathFinder} that caches answers.
+ * Results are kept in a size-bounded LRU keyed by (start student, internship).
+ * The cache belongs to one version of the current graph, so replacing the
+ * graph or updating it drops it.
+ */
+public class ReferralQueryService {
+
+    private static final int DEFAULT_CAPACITY = 10_000;
+    // Independent LRU segments so concurrent lookups rarely contend on one lock;
+    // fewer for small caches so every segment holds at least one path
+    private static final int MAX_SEGMENTS = 16;
+
+    private final int capacity;
+    private volatile Snapshot snapshot;
+
+    public ReferralQueryService(StudentGraph graph) {
+        this(graph, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param graph graph to answer queries against
+     * @param capacity maximum number of cached paths
+     */
+    public ReferralQueryService(StudentGraph graph, int capacity) {
+        if (capacity < 1) throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.snapshot = new Snapshot(graph, capacity);
+    }
+
+    /**
+     * Same as {@link ReferralPathFinder#findReferralPath}, answered from the cache when possible.
+     *
+     * @param start starting student
+     * @param internship company to find
+     * @return unmodifiable path to a student with that internship, or empty list if none found
+     */
+    public List<UniversityStudent> findReferralPath(UniversityStudent start, String internship) {
+        Snapshot current = snapshot;
+        if (current.version != current.graph.version()) {
+            // The graph was updated; start a fresh cache unless another thread already did
+            Snapshot fresh = new Snapshot(current.graph, capacity);
+            synchronized (this) {
+                if (snapshot == current) snapshot = fresh;
+                current = snapshot;
+            }
+        }
+        Key key = new Key(start.getName(), internship);
+        Map<Key, List<UniversityStudent>> segment = current.segmentFor(key);
+
+        List<UniversityStudent> cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null) return cached;
+
+        // Search outside the lock; a racing thread may compute the same answer
+        List<UniversityStudent> path = Collections.unmodifiableList(
+                new ArrayList<>(current.finder.findReferralPath(start, internship)));
+        synchronized (segment) {
+            segment.put(key, path);
+        }
+        return path;
+    }
+
+    /**
+     * Switches queries to a new graph and discards every cached path.
+     * Queries already running against the old graph finish against it.
+     *
+     * @param graph the new graph
+     */
+    public void replaceGraph(StudentGraph graph) {
+        snapshot = new Snapshot(graph, capacity);
+    }
+
+    /**
+     * @return the graph queries are currently answered against
+     */
+    public StudentGraph getGraph() {
+        return snapshot.graph;
+    }
+
+    /**
+     * A graph version together with its finder and cache, swapped as one unit.
+     */
+    private static class Snapshot {
+        final StudentGraph graph;
+        final long version;
+        final ReferralPathFinder finder;
+        final List<Map<Key, List<UniversityStudent>>> segments = new ArrayList<>();
+
+        Snapshot(StudentGraph graph, int capacity) {
+            this.graph = graph;
+            this.version = graph.version();
+            this.finder = new ReferralPathFinder(graph);
+            // Split capacity exactly: the first (capacity % count) segments take one extra path
+            int count = Math.min(MAX_SEGMENTS, capacity);
+            for (int i = 0; i < count; i++) {
+                int perSegment = capacity / count + (i < capacity % count ? 1 : 0);
+                segments.add(new LinkedHashMap<Key, List<UniversityStudent>>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Key, List<UniversityStudent>> eldest) {
+                        return size() > perSegment;
+                    }
+                });
+            }
+        }
+
+        Map<Key, List<UniversityStudent>> segmentFor(Key key) {
+            return segments.get((key.hashCode() & 0x7fffffff) % segments.size());
+        }
+    }
+
+    /**
+     * Cache key; students are identified by name, matching UniversityStudent.equals.
+     */
+    private static class Key {
+        final String student;
+        final String internship;
+
+        Key(String student, String internship) {
+            this.student = student;
+            this.internship = internship;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) return true;
+            if (!(obj instanceof Key)) return false;
+            Key other = (Key) obj;
+            return student.equals(other.student) && Objects.equals(internship, other.internship);
+        }
+
+        @Override
+        public int hashCode() { return 31 * student.hashCode() + Objects.hashCode(internship); }
+    }
+}
@@ -0,0 +1,242 @@
+import java.util.*;
+
+/**
+ * Checks roommate matching: the primitive Gale-Shapley engine against the
+ * original object-based loop, Irving's algorithm against brute-force search
+ * for a stable matching on small instances, and incremental re-matching
+ * against the matching state it reports and against a fresh run.
+ */
+public class RoommateCheck {
+
+    public static void main(String[] args) {
+        run();
+        CheckSupport.finish("RoommateCheck");
+    }
+
+    static void run() {
+        checkGaleShapley();
+        checkIrving();
+        checkRematch();
+    }
+
+    /**
+     * The original proposal loop over names and student objects.
+     */
+    static Map<String, String> referenceMatching(List<UniversityStudent> students) {
+        Map<String, UniversityStudent> byName = new HashMap<>();
+        Map<UniversityStudent, UniversityStudent> partner = new HashMap<>();
+        Map<UniversityStudent, Integer> next = new HashMap<>();
+        Queue<UniversityStudent> free = new ArrayDeque<>();
+        for (UniversityStudent s : students) {
+            byName.put(s.getName(), s);
+            next.put(s, 0);
+            if (!s.getRoommatePreferences().isEmpty()) free.add(s);
+        }
+        while (!free.isEmpty()) {
+            UniversityStudent proposer = free.poll();
+            if (partner.get(proposer) != null) continue;
+            List<String> prefs = proposer.getRoommatePreferences();
+            int idx = next.get(proposer);
+            if (idx >= prefs.size()) continue;
+            next.put(proposer, idx + 1);
+            UniversityStudent proposee = byName.get(prefs.get(idx));
+            UniversityStudent current = partner.get(proposee);
+            if (current == null) {
+                partner.put(proposer, proposee);
+                partner.put(proposee, proposer);
+            } else {
+                List<String> theirs = proposee.getRoommatePreferences();
+                int newIndex = theirs.indexOf(proposer.getName());
+                int currentIndex = theirs.indexOf(current.getName());
+                if (newIndex != -1 && (currentIndex == -1 || newIndex < currentIndex)) {
+                    partner.put(current, null);
+                    partner.put(proposer, proposee);
+                    partner.put(proposee, proposer);
+                    free.add(current);
+                } else {
+                    free.add(proposer);
+                }
+            }
+        }
+        Map<String, String> result = new HashMap<>();
+        for (UniversityStudent s : students) {
+            UniversityStudent p = partner.get(s);
+            result.put(s.getName(), p == null ? null : p.getName());
+        }
+        return result;
+    }
+
+    private static Map<String, String> assigned(List<UniversityStudent> students) {
+        Map<String, String> result = new HashMap<>();
+        for (UniversityStudent s : students) {
+            result.put(s.getName(), s.getRoommate() == null ? null : s.getRoommate().getName());
+        }
+        return result;
+    }
+
+    private static void checkGaleShapley() {
+        for (int seed = 0; seed < 30; seed++) {
+            List<UniversityStudent> students = CheckSupport.cohort(20 + seed * 10, seed);
+            Map<String, String> expected = referenceMatching(students);
+            GaleShapley.setAssignedRoommate(students);
+            CheckSupport.expect(assigned(students).equals(expected), "Gale-Shapley matching, seed " + seed);
+        }
+    }
+
+    private static void checkIrving() {
+        Random r = new Random(1);
+        for (int t = 0; t < 3000; t++) {
+            int n = 2 + r.nextInt(7);
+            boolean complete = r.nextBoolean();
+            int[][] rank = new int[n][n];
+            List<UniversityStudent> students = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                List<Integer> order = new ArrayList<>();
+                for (int j = 0; j < n; j++) {
+                    if (j != i && (complete || r.nextInt(3) > 0)) order.add(j);
+                }
+                Collections.shuffle(order, r);
+                Arrays.fill(rank[i], -1);
+                List<String> names = new ArrayList<>();
+                for (int k = 0; k < order.size(); k++) {
+                    names.add("P" + order.get(k));
+                    rank[i][order.get(k)] = k;
+                }
+                students.add(new UniversityStudent("P" + i, 20, "M", 1, "X", 3, names, List.of()));
+            }
+            StableRoommates.Result result = StableRoommates.solve(new RoommatePreferences(students));
+            int[] matching = new int[n];
+            Arrays.fill(matching, -2);
+            boolean exists = anyStable(rank, matching, 0);
+            CheckSupport.expect(result.isStable() == exists, "Irving stability verdict, instance " + t);
+            if (result.isStable()) {
+                int[] found = new int[n];
+                for (int i = 0; i < n; i++) found[i] = result.partner(i);
+                CheckSupport.expect(isStable(rank, found), "Irving matching not stable, instance " + t);
+            }
+        }
+    }
+
+    /**
+     * Tries every matching, where -1 leaves a student single and -2 is undecided.
+     */
+    private static boolean anyStable(int[][] rank, int[] matching, int from) {
+        int n = rank.length;
+        int i = from;
+        while (i < n && matching[i] != -2) i++;
+        if (i == n) return isStable(rank, matching);
+        matching[i] = -1;
+        if (anyStable(rank, matching, i + 1)) return true;
+        for (int j = i + 1; j < n; j++) {
+            if (matching[j] != -2) continue;
+            matching[i] = j;
+            matching[j] = i;
+            boolean found = anyStable(rank, matching, i + 1);
+            matching[j] = -2;
+            if (found) {
+                matching[i] = -2;
+                return true;
+            }
+        }
+        matching[i] = -2;
+        return false;
+    }
+
+    /**
+     * Partners must list each other, and no two acceptable students may both prefer each other.
+     */
+    private static boolean isStable(int[][] rank, int[] matching) {
+        int n = rank.length;
+        for (int a = 0; a < n; a++) {
+            int m = matching[a];
+            if (m >= 0 && (rank[a][m] < 0 || rank[m][a] < 0 || matching[m] != a)) return false;
+        }
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                if (rank[a][b] < 0 || rank[b][a] < 0 || matching[a] == b) continue;
+                boolean aPrefers = matching[a] < 0 || rank[a][b] < rank[a][matching[a]];
+                boolean bPrefers = matching[b] < 0 || rank[b][a] < rank[b][matching[b]];
+                if (aPrefers && bPrefers) return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkRematch() {
+        List<UniversityStudent> students = CheckSupport.cohort(5000, 9);
+        Random r = new Random(2);
+        for (UniversityStudent s : students) refill(s, r, students.size());
+        RoommateMatching matching = GaleShapley.match(new RoommatePreferences(students));
+        matching.writeBack();
+        for (int round = 0; round < 100; round++) {
+            Map<String, String> before = assigned(students);
+            List<UniversityStudent> changed = new ArrayList<>();
+            // Now and then an edit large enough to hand over to a full run
+            int edits = round % 25 == 24 ? students.size() : 3;
+            for (int k = 0; k < edits; k++) {
+                UniversityStudent s = students.get(r.nextInt(students.size()));
+                refill(s, r, students.size());
+                changed.add(s);
+            }
+            Set<String> reported = new HashSet<>();
+            for (UniversityStudent s : GaleShapley.rematch(matching, changed)) reported.add(s.getName());
+
+            Set<String> moved = new HashSet<>();
+            boolean consistent = true;
+            Map<String, String> after = assigned(students);
+            for (UniversityStudent s : students) {
+                if (!Objects.equals(after.get(s.getName()), before.get(s.getName()))) moved.add(s.getName());
+                int id = matching.preferences().idOf(s.getName());
+                int p = matching.partner(id);
+                consistent &= Objects.equals(after.get(s.getName()), p < 0 ? null : matching.preferences().student(p).getName());
+                consistent &= p < 0 || matching.partner(p) == id;
+            }
+            CheckSupport.expect(consistent, "rematch left students and matching out of step, round " + round);
+            CheckSupport.expect(reported.equals(moved), "rematch reported the wrong students, round " + round);
+
+            // Compared with a fresh run on the edited lists: nobody free is left with a free
+            // choice, about as many students are paired, and a large edit gives the same result
+            RoommateMatching fresh = GaleShapley.match(new RoommatePreferences(students));
+            CheckSupport.expect(freeWithFreeChoice(matching) == 0,
+                    "rematch left a free student with a free choice, round " + round);
+            CheckSupport.expect(unmatched(matching) <= unmatched(fresh) * 21 / 20 + 2,
+                    "rematch left " + unmatched(matching) + " students unmatched, a full run "
+                    + unmatched(fresh) + ", round " + round);
+            if (edits == students.size()) {
+                boolean same = true;
+                for (int id = 0; id < students.size(); id++) same &= matching.partner(id) == fresh.partner(id);
+                CheckSupport.expect(same, "rematch after a large edit differs from a full run, round " + round);
+            }
+        }
+    }
+
+    private static int freeWithFreeChoice(RoommateMatching matching) {
+        RoommatePreferences prefs = matching.preferences();
+        int count = 0;
+        for (int id = 0; id < prefs.size(); id++) {
+            if (matching.partner(id) >= 0) continue;
+            for (int k = 0; k < prefs.listLength(id); k++) {
+                int choice = prefs.choice(id, k);
+                if (choice != id && matching.partner(choice) < 0) {
+                    count++;
+                    break;
+                }
+            }
+        }
+        return count;
+    }
+
+    private static int unmatched(RoommateMatching matching) {
+        int count = 0;
+        for (int id = 0; id < matching.preferences().size(); id++) {
+            if (matching.partner(id) < 0) count++;
+        }
+        return count;
+    }
+
+    private static void refill(UniversityStudent s, Random r, int n) {
+        List<String> prefs = s.getRoommatePreferences();
+        prefs.clear();
+        for (int k = 0; k < 20; k++) prefs.add("S" + r.nextInt(n));
+    }
+}
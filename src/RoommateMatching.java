@@ -0,0 +1,46 @@
+import java.util.*;
+
+/**
+ * Gale-Shapley matching together with the state needed to resume it:
+ * each student's partner and the index of their next proposal.
+ * {@link GaleShapley#rematch} updates it in place when preferences change.
+ */
+public class RoommateMatching {
+
+    final RoommatePreferences prefs;
+    final int[] partner;
+    final int[] nextProposal;
+
+    RoommateMatching(RoommatePreferences prefs) {
+        this.prefs = prefs;
+        this.partner = new int[prefs.size()];
+        this.nextProposal = new int[prefs.size()];
+        Arrays.fill(partner, -1);
+    }
+
+    public RoommatePreferences preferences() { return prefs; }
+
+    /**
+     * @return partner id of the student, or -1 if unpaired
+     */
+    public int partner(int id) { return partner[id]; }
+
+    /**
+     * @return the student's roommate, or null if unpaired
+     */
+    public UniversityStudent roommateOf(UniversityStudent student) {
+        int id = prefs.idOf(student.getName());
+        return id < 0 || partner[id] < 0 ? null : prefs.student(partner[id]);
+    }
+
+    /**
+     * Copies the matching into every student's assignedRoommate field.
+     */
+    public void writeBack() {
+        for (int id = 0; id < partner.length; id++) writeBack(id);
+    }
+
+    void writeBack(int id) {
+        prefs.student(id).setAssignedRoommate(partner[id] < 0 ? null : prefs.student(partner[id]));
+    }
+}
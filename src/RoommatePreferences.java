@@ -0,0 +1,243 @@
+import java.util.*;
+
+/**
+ * Roommate preference lists translated once into int ids, with an O(1)
+ * rank lookup. Ids are positions in the student list; names that match no
+ * student are dropped. Ranks live in one open-addressing table keyed by
+ * (owner, candidate) so memory stays proportional to the total list length.
+ * A single student's list can be re-read with {@link #update} after it changes.
+ * The reverse lists, who lists whom, are built on first use and kept up to
+ * date by {@link #update} from then on.
+ */
+public class RoommatePreferences {
+
+    private final UniversityStudent[] students;
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final int[] canonical;
+    private final int[][] preferences;
+
+    private long[] rankKeys;
+    private int[] rankValues;
+    private int usedSlots;
+    private int totalLength;
+
+    // Students listing each candidate, once each; null until first needed
+    private int[][] listers;
+    private int[] listerCounts;
+
+    /**
+     * @param students students to translate; later students win on duplicate names
+     */
+    public RoommatePreferences(List<UniversityStudent> students) {
+        int n = students.size();
+        this.students = students.toArray(new UniversityStudent[0]);
+        for (int i = 0; i < n; i++) ids.put(this.students[i].getName(), i);
+        canonical = new int[n];
+        for (int i = 0; i < n; i++) canonical[i] = ids.get(this.students[i].getName());
+
+        preferences = new int[n][];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            preferences[i] = translate(this.students[i].getRoommatePreferences());
+            total += preferences[i].length;
+        }
+        totalLength = total;
+
+        int capacity = Integer.highestOneBit(Math.max(16, total * 2 + 1) - 1) << 1;
+        rankKeys = new long[capacity];
+        rankValues = new int[capacity];
+        Arrays.fill(rankKeys, -1L);
+        for (int i = 0; i < n; i++) indexRanks(i);
+    }
+
+    private int[] translate(List<String> names) {
+        int[] result = new int[names.size()];
+        int count = 0;
+        for (String name : names) {
+            Integer id = ids.get(name);
+            if (id != null) result[count++] = id;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Records each candidate's first position in the owner's list.
+     */
+    private void indexRanks(int owner) {
+        int[] list = preferences[owner];
+        for (int k = list.length - 1; k >= 0; k--) {
+            putRank(key(owner, list[k]), k);
+        }
+    }
+
+    private long key(int owner, int candidate) {
+        return (long) owner * students.length + candidate;
+    }
+
+    private int slotFor(long key) {
+        int mask = rankKeys.length - 1;
+        int h = (int) (key ^ (key >>> 32)) * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (rankKeys[slot] != -1L && rankKeys[slot] != key) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private void putRank(long key, int rank) {
+        int slot = slotFor(key);
+        if (rankKeys[slot] == -1L) {
+            if (++usedSlots * 2 > rankKeys.length) {
+                rehash();
+                slot = slotFor(key);
+            }
+            rankKeys[slot] = key;
+        }
+        rankValues[slot] = rank;
+    }
+
+    /**
+     * Doubles the rank table, dropping entries removed by {@link #update}.
+     */
+    private void rehash() {
+        long[] oldKeys = rankKeys;
+        int[] oldValues = rankValues;
+        rankKeys = new long[oldKeys.length * 2];
+        rankValues = new int[oldKeys.length * 2];
+        Arrays.fill(rankKeys, -1L);
+        usedSlots = 1; // the entry being inserted
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != -1L && oldValues[i] >= 0) {
+                int slot = slotFor(oldKeys[i]);
+                rankKeys[slot] = oldKeys[i];
+                rankValues[slot] = oldValues[i];
+                usedSlots++;
+            }
+        }
+    }
+
+    /**
+     * Re-reads one student's preference list after it was edited.
+     *
+     * @param id the student whose list changed
+     */
+    public void update(int id) {
+        if (listers != null) forEachCandidate(id, (owner, candidate) -> removeLister(candidate, owner));
+        // Removed entries keep their key with rank -1 until the next rehash
+        for (int candidate : preferences[id]) {
+            int slot = slotFor(key(id, candidate));
+            if (rankKeys[slot] != -1L) rankValues[slot] = -1;
+        }
+        totalLength -= preferences[id].length;
+        preferences[id] = translate(students[id].getRoommatePreferences());
+        totalLength += preferences[id].length;
+        indexRanks(id);
+        if (listers != null) forEachCandidate(id, (owner, candidate) -> addLister(candidate, owner));
+    }
+
+    /**
+     * @return number of students who list the student, or any student of the same name
+     */
+    public int listerCount(int id) {
+        buildListers();
+        return listerCounts[canonical[id]];
+    }
+
+    /**
+     * @return id of the k-th student who lists the student, in no particular order
+     */
+    public int lister(int id, int k) {
+        buildListers();
+        return listers[canonical[id]][k];
+    }
+
+    /**
+     * @return combined length of all preference lists
+     */
+    public int totalLength() { return totalLength; }
+
+    private void buildListers() {
+        if (listers != null) return;
+        listers = new int[students.length][];
+        listerCounts = new int[students.length];
+        for (int i = 0; i < students.length; i++) forEachCandidate(i, (owner, candidate) -> listerCounts[candidate]++);
+        for (int i = 0; i < students.length; i++) {
+            listers[i] = new int[listerCounts[i]];
+            listerCounts[i] = 0;
+        }
+        for (int i = 0; i < students.length; i++) forEachCandidate(i, (owner, candidate) -> addLister(candidate, owner));
+    }
+
+    /**
+     * Calls the action once per distinct candidate in the owner's list.
+     */
+    private void forEachCandidate(int owner, IntPairConsumer action) {
+        int[] list = preferences[owner];
+        for (int k = 0; k < list.length; k++) {
+            if (rank(owner, list[k]) == k) action.accept(owner, list[k]);
+        }
+    }
+
+    private void addLister(int candidate, int owner) {
+        int[] list = listers[candidate];
+        if (listerCounts[candidate] == list.length) {
+            list = listers[candidate] = Arrays.copyOf(list, Math.max(4, list.length * 2));
+        }
+        list[listerCounts[candidate]++] = owner;
+    }
+
+    private void removeLister(int candidate, int owner) {
+        int[] list = listers[candidate];
+        int count = listerCounts[candidate];
+        for (int k = 0; k < count; k++) {
+            if (list[k] == owner) {
+                list[k] = list[--count];
+                listerCounts[candidate] = count;
+                return;
+            }
+        }
+    }
+
+    private interface IntPairConsumer {
+        void accept(int owner, int candidate);
+    }
+
+    /**
+     * @return number of students
+     */
+    public int size() { return students.length; }
+
+    /**
+     * @return the student with that id
+     */
+    public UniversityStudent student(int id) { return students[id]; }
+
+    /**
+     * @param name student name
+     * @return the student's id, or -1 if unknown
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * @return number of valid entries in the student's preference list
+     */
+    public int listLength(int id) { return preferences[id].length; }
+
+    /**
+     * @return id of the student's k-th choice
+     */
+    public int choice(int id, int k) { return preferences[id][k]; }
+
+    /**
+     * Position of a candidate in an owner's list. Candidates are matched by name,
+     * like List.indexOf on the original names.
+     *
+     * @return 0-based rank, or -1 if the owner did not list the candidate
+     */
+    public int rank(int owner, int candidate) {
+        long key = key(owner, canonical[candidate]);
+        int slot = slotFor(key);
+        return rankKeys[slot] == key ? rankValues[slot] : -1;
+    }
+}
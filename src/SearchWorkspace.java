@@ -0,0 +1,89 @@
+import java.util.*;
+
+/**
+ * Reusable scratch state for shortest-path searches over a {@link CompactStudentGraph}.
+ * Distances and predecessors are only valid for ids stamped with the current
+ * generation, so starting a new search never clears the arrays.
+ */
+public class SearchWorkspace {
+
+    private int[] distances = new int[0];
+    private int[] previous = new int[0];
+    private int[] reached = new int[0];
+    private int[] settled = new int[0];
+    private int generation;
+    private int[] marks = new int[0];
+    private int markGeneration;
+    private final IndexedMinHeap heap = new IndexedMinHeap();
+
+    /**
+     * Starts a new search over a graph with {@code n} students.
+     */
+    public void reset(int n) {
+        if (reached.length < n) {
+            int grown = Math.max(n, reached.length * 2);
+            distances = Arrays.copyOf(distances, grown);
+            previous = Arrays.copyOf(previous, grown);
+            reached = Arrays.copyOf(reached, grown);
+            settled = Arrays.copyOf(settled, grown);
+        }
+        heap.ensureCapacity(n);
+        heap.clear();
+        if (++generation == Integer.MAX_VALUE) {
+            // Stamps would wrap around; clear once and start over
+            Arrays.fill(reached, 0);
+            Arrays.fill(settled, 0);
+            generation = 1;
+        }
+    }
+
+    public IndexedMinHeap heap() { return heap; }
+
+    /**
+     * @return tentative distance of the id, or Integer.MAX_VALUE if not reached yet
+     */
+    public int distance(int id) {
+        return reached[id] == generation ? distances[id] : Integer.MAX_VALUE;
+    }
+
+    /**
+     * @return predecessor of the id on its best path, or -1 for a source
+     */
+    public int previous(int id) { return previous[id]; }
+
+    /**
+     * Records a better distance for the id and queues it.
+     */
+    public void relax(int id, int distance, int prev) {
+        relax(id, distance, prev, distance);
+    }
+
+    /**
+     * Records a better distance for the id and queues it under a separate
+     * priority, such as distance plus an A* estimate of the remaining cost.
+     */
+    public void relax(int id, int distance, int prev, int priority) {
+        reached[id] = generation;
+        distances[id] = distance;
+        previous[id] = prev;
+        heap.insertOrDecrease(id, priority);
+    }
+
+    public boolean isSettled(int id) { return settled[id] == generation; }
+    public void settle(int id) { settled[id] = generation; }
+
+    /**
+     * Starts a new, empty set of marked ids, independent of the search generation.
+     * Used to exclude students from a search.
+     */
+    public void clearMarks(int n) {
+        if (marks.length < n) marks = Arrays.copyOf(marks, Math.max(n, marks.length * 2));
+        if (++markGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(marks, 0);
+            markGeneration = 1;
+        }
+    }
+
+    public boolean isMarked(int id) { return marks[id] == markGeneration; }
+    public void mark(int id) { marks[id] = markGeneration; }
+}
@@ -0,0 +1,196 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Checks cohort snapshots round trip exactly and reject damaged files with an
+ * IOException.
+ */
+public class SnapshotCheck {
+
+    private static final int HEADER_BYTES = 48;
+
+    public static void main(String[] args) throws Exception {
+        run();
+        CheckSupport.finish("SnapshotCheck");
+    }
+
+    static void run() throws Exception {
+        checkRoundTrip();
+        checkDamage();
+    }
+
+    private static void checkRoundTrip() throws IOException {
+        List<UniversityStudent> students = CheckSupport.cohort(1500, 4);
+        students.get(0).getPreviousInternships().add("Ünïcode Co");
+        students.set(3, new UniversityStudent("Nully", 20, null, 2, "Hist", 3.0, new ArrayList<>(), new ArrayList<>()));
+        CheckSupport.randomRoommates(students, new Random(1));
+        StudentGraph graph = new StudentGraph(students, StudentGraph.BuildMode.BUCKETED);
+
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            CohortSnapshot.write(file, students, graph, true);
+            CohortSnapshot snapshot = CohortSnapshot.load(file);
+            List<UniversityStudent> loaded = snapshot.students();
+            CheckSupport.expect(loaded.toString().equals(students.toString()), "students changed in a round trip");
+            boolean roommates = true;
+            for (int i = 0; i < students.size(); i++) {
+                roommates &= Objects.equals(name(students.get(i).getRoommate()), name(loaded.get(i).getRoommate()));
+            }
+            CheckSupport.expect(roommates, "roommates changed in a round trip");
+
+            CompactStudentGraph compact = snapshot.compactGraph();
+            CheckSupport.expect(compact == snapshot.compactGraph() && snapshot.graph() == snapshot.graph(),
+                    "snapshot graphs not cached");
+            boolean sameCompact = compact.size() == students.size();
+            for (int i = 0; sameCompact && i < students.size(); i++) {
+                List<StudentGraph.Edge> a = graph.getNeighbors(students.get(i));
+                sameCompact = compact.student(i) == loaded.get(i) && compact.degree(i) == a.size();
+                for (int k = 0; sameCompact && k < a.size(); k++) {
+                    int e = compact.firstEdge(i) + k;
+                    sameCompact = a.get(k).neighbor.getName().equals(compact.student(compact.target(e)).getName())
+                            && a.get(k).weight == compact.weight(e);
+                }
+            }
+            CheckSupport.expect(sameCompact, "CSR graph changed in a round trip");
+
+            StudentGraph restored = snapshot.graph();
+            boolean same = true;
+            for (int i = 0; i < students.size(); i++) {
+                List<StudentGraph.Edge> a = graph.getNeighbors(students.get(i));
+                List<StudentGraph.Edge> b = restored.getNeighbors(loaded.get(i));
+                same &= a.size() == b.size();
+                for (int k = 0; same && k < a.size(); k++) {
+                    same = a.get(k).neighbor.getName().equals(b.get(k).neighbor.getName()) && a.get(k).weight == b.get(k).weight;
+                }
+            }
+            CheckSupport.expect(same, "graph changed in a round trip");
+
+            // A restored graph still takes updates
+            UniversityStudent added = CheckSupport.cohort(1501, 9).get(1500);
+            restored.addStudent(added);
+            List<UniversityStudent> grown = new ArrayList<>(loaded);
+            grown.add(added);
+            CheckSupport.expect(CheckSupport.sortedDump(restored).equals(CheckSupport.sortedDump(new StudentGraph(grown))),
+                    "update of a restored graph differs from a rebuild");
+
+            CohortSnapshot.write(file, students, null, false);
+            CohortSnapshot bare = CohortSnapshot.load(file);
+            CheckSupport.expect(!bare.hasGraph() && !bare.hasRoommates() && bare.students().get(5).getRoommate() == null,
+                    "snapshot without graph or roommates");
+
+            CohortSnapshot.write(file, new ArrayList<>(), new StudentGraph(new ArrayList<>()), true);
+            CheckSupport.expect(CohortSnapshot.load(file).graph().getAllNodes().isEmpty(), "empty snapshot");
+
+            // A failed write leaves neither the file nor its temporary copy behind
+            Path target = file.resolveSibling(file.getFileName() + ".failed");
+            boolean failed = false;
+            try {
+                CohortSnapshot.write(target, students.subList(0, 10), graph, false);
+            } catch (IllegalArgumentException e) {
+                failed = true;
+            }
+            CheckSupport.expect(failed && !Files.exists(target) && siblings(target).isEmpty(), "failed write left files behind");
+
+            checkConcurrentWrites(file, students, graph);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Writers racing on one file must each leave a whole snapshot, never a mix
+     * of two or a missing temporary file.
+     */
+    private static void checkConcurrentWrites(Path file, List<UniversityStudent> students, StudentGraph graph)
+            throws IOException {
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            List<UniversityStudent> cohort = students.subList(0, 100 + 50 * w);
+            StudentGraph cohortGraph = new StudentGraph(cohort);
+            boolean roommates = w % 2 == 0;
+            writers.add(new Thread(() -> {
+                try {
+                    for (int round = 0; round < 10; round++) CohortSnapshot.write(file, cohort, cohortGraph, roommates);
+                } catch (Throwable e) {
+                    errors.add(e);
+                }
+            }));
+        }
+        for (Thread t : writers) t.start();
+        for (Thread t : writers) {
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+        CheckSupport.expect(errors.isEmpty(), "concurrent snapshot writes failed: " + errors);
+        CohortSnapshot last = CohortSnapshot.load(file);
+        CheckSupport.expect(last.graph().getAllNodes().size() == last.studentCount() && siblings(file).isEmpty(),
+                "concurrent snapshot writes left a bad file or temporary files");
+    }
+
+    /**
+     * @return other files in the same directory whose names start with the file's name
+     */
+    private static List<Path> siblings(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(file.toAbsolutePath().getParent(), name + "*")) {
+            for (Path p : entries) {
+                if (!p.getFileName().toString().equals(name)) found.add(p);
+            }
+        }
+        return found;
+    }
+
+    private static String name(UniversityStudent s) {
+        return s == null ? null : s.getName();
+    }
+
+    private static void checkDamage() throws IOException {
+        List<UniversityStudent> students = CheckSupport.cohort(50, 4);
+        Path file = Files.createTempFile("snapshot", ".bin");
+        try {
+            CohortSnapshot.write(file, students, new StudentGraph(students), true);
+            byte[] original = Files.readAllBytes(file);
+
+            // Every header field set to values that do not fit the payload
+            for (int offset = 0; offset + 4 <= HEADER_BYTES; offset += 4) {
+                for (int value : new int[]{1 << 30, -5, 7, 0}) {
+                    byte[] damaged = original.clone();
+                    ByteBuffer.wrap(damaged).order(ByteOrder.LITTLE_ENDIAN).putInt(offset, value);
+                    if (Arrays.equals(damaged, original)) continue;
+                    CheckSupport.expect(rejects(file, damaged), "header int at " + offset + " set to " + value + " was not rejected");
+                }
+            }
+            byte[] flipped = original.clone();
+            flipped[flipped.length / 2] ^= 1;
+            CheckSupport.expect(rejects(file, flipped), "flipped payload bit was not rejected");
+            CheckSupport.expect(rejects(file, Arrays.copyOf(original, 100)), "truncated file was not rejected");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * @return true if loading the bytes fails with an IOException
+     */
+    private static boolean rejects(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes);
+        try {
+            CohortSnapshot snapshot = CohortSnapshot.load(file);
+            snapshot.students();
+            if (snapshot.hasGraph()) snapshot.graph();
+            return false;
+        } catch (IOException e) {
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Batched alternative to submitting one {@link ChatThread} or
+ * {@link FriendRequestThread} per event to an executor.
+ *
+ * Events go into bounded per-worker queues, chosen by the receiver, so all
+ * deliveries to one student are handled by one worker in submission order.
+ * Each worker drains up to {@code maxBatch} events at a time, groups them
+ * by receiver, records the messages and hands the whole batch to the
+ * {@link EventLog} sink as one write instead of one per event.
+ * When a queue is full, {@link #chat} and {@link #friendRequest} block until
+ * the worker catches up.
+ *
+ * A sink failure does not stop a worker: the batch's messages are still
+ * recorded, the first failure is kept and {@link #close} rethrows it.
+ * If a worker does stop, through an Error or an interrupt, producers waiting
+ * on its queue fail with IllegalStateException instead of blocking forever.
+ */
+public class SocialEventDispatcher implements AutoCloseable {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 8192;
+    private static final int DEFAULT_MAX_BATCH = 512;
+    // How long a producer waits for queue space before checking that the worker is still running
+    private static final long WAIT_SLICE_MILLIS = 50;
+
+    private final List<BlockingQueue<Event>> queues = new ArrayList<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private final int maxBatch;
+    private final AtomicLong delivered = new AtomicLong();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    // Producers between their closed check and the end of their put
+    private final AtomicInteger enqueuing = new AtomicInteger();
+    // Notified when the last of those producers leaves after close has started
+    private final Object idle = new Object();
+    private volatile boolean closed;
+
+    /**
+     * Uses one worker per core, up to four, with default queue and batch sizes.
+     */
+    public SocialEventDispatcher() {
+        this(Math.min(4, Runtime.getRuntime().availableProcessors()), DEFAULT_QUEUE_CAPACITY,
+             DEFAULT_MAX_BATCH, null);
+    }
+
+    /**
+     * @param workerCount number of worker threads
+     * @param queueCapacity events each worker can hold before producers block
+     * @param maxBatch most events a worker handles in one pass
+     * @param threadFactory creates the workers; null for daemon platform threads
+     */
+    public SocialEventDispatcher(int workerCount, int queueCapacity, int maxBatch, ThreadFactory threadFactory) {
+        if (workerCount < 1) throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+        if (queueCapacity < 1) throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        if (maxBatch < 1) throw new IllegalArgumentException("Batch size must be positive: " + maxBatch);
+        this.maxBatch = maxBatch;
+        for (int i = 0; i < workerCount; i++) {
+            BlockingQueue<Event> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues.add(queue);
+            Runnable loop = () -> {
+                try {
+                    runWorker(queue);
+                } catch (RuntimeException | Error e) {
+                    failure.compareAndSet(null, new IllegalStateException("Dispatcher worker died", e));
+                    throw e;
+                }
+            };
+            Thread worker;
+            if (threadFactory != null) {
+                worker = threadFactory.newThread(loop);
+            } else {
+                worker = new Thread(loop, "social-dispatch-" + i);
+                worker.setDaemon(true);
+            }
+            workers.add(worker);
+        }
+        for (Thread worker : workers) worker.start();
+    }
+
+    /**
+     * Queues a chat message, same effect as running a {@link ChatThread}.
+     *
+     * @throws InterruptedException if interrupted while waiting for queue space
+     */
+    public void chat(UniversityStudent sender, UniversityStudent receiver, String message)
+            throws InterruptedException {
+        enqueue(new Event(sender, receiver, message));
+    }
+
+    /**
+     * Queues a friend request, same effect as running a {@link FriendRequestThread}.
+     *
+     * @throws InterruptedException if interrupted while waiting for queue space
+     */
+    public void friendRequest(UniversityStudent sender, UniversityStudent receiver)
+            throws InterruptedException {
+        enqueue(new Event(sender, receiver, null));
+    }
+
+    /**
+     * @return number of events handled so far
+     */
+    public long deliveredCount() {
+        return delivered.get();
+    }
+
+    /**
+     * Stops accepting events, handles everything already queued and waits for the workers.
+     * Events submitted by other threads while this runs are either handled or
+     * rejected with IllegalStateException. If interrupted while waiting, returns
+     * early with the interrupt status set.
+     *
+     * @throws RuntimeException the first failure writing a batch to the sink,
+     *         or IllegalStateException if a worker stopped early
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            // Workers keep draining, and producers on a stopped worker give up, so this ends
+            synchronized (idle) {
+                while (enqueuing.get() > 0) idle.wait();
+            }
+            for (int i = 0; i < queues.size(); i++) {
+                try {
+                    put(i, Event.STOP);
+                } catch (IllegalStateException stopped) {
+                    // Nothing left to stop; the failure is reported below
+                }
+            }
+            for (Thread worker : workers) worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        RuntimeException e = failure.get();
+        if (e != null) throw e;
+    }
+
+    private void enqueue(Event event) throws InterruptedException {
+        enqueuing.incrementAndGet();
+        try {
+            if (closed) throw new IllegalStateException("Dispatcher is closed");
+            put((event.receiver.hashCode() & 0x7fffffff) % queues.size(), event);
+        } finally {
+            if (enqueuing.decrementAndGet() == 0 && closed) {
+                synchronized (idle) {
+                    idle.notifyAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Puts the event on the worker's queue, waiting for space in short slices
+     * so that a stopped worker fails the caller instead of blocking it.
+     *
+     * @throws IllegalStateException if the worker has stopped
+     */
+    private void put(int worker, Event event) throws InterruptedException {
+        BlockingQueue<Event> queue = queues.get(worker);
+        Thread thread = workers.get(worker);
+        while (thread.isAlive()) {
+            if (queue.offer(event, WAIT_SLICE_MILLIS, TimeUnit.MILLISECONDS)) return;
+        }
+        throw new IllegalStateException("Dispatcher worker " + thread.getName() + " has stopped", failure.get());
+    }
+
+    private void runWorker(BlockingQueue<Event> queue) {
+        List<Event> batch = new ArrayList<>(maxBatch);
+        Map<UniversityStudent, List<Event>> byReceiver = new LinkedHashMap<>();
+        StringBuilder out = new StringBuilder();
+        String newline = System.lineSeparator();
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                failure.compareAndSet(null, new IllegalStateException("Dispatcher worker interrupted"));
+                Thread.currentThread().interrupt();
+                return;
+            }
+            queue.drainTo(batch, maxBatch - 1);
+
+            for (Event e : batch) {
+                if (e == Event.STOP) {
+                    stopping = true;
+                    continue;
+                }
+                byReceiver.computeIfAbsent(e.receiver, k -> new ArrayList<>()).add(e);
+            }
+            for (List<Event> group : byReceiver.values()) {
+                for (Event e : group) {
+                    if (e.message != null) {
+                        e.sender.getMessageLog().append(ChatMessage.sent(e.receiver.name, e.message));
+                        e.receiver.getMessageLog().append(ChatMessage.received(e.sender.name, e.message));
+                        out.append(ChatThread.line(e.sender, e.receiver, e.message));
+                    } else {
+                        out.append(FriendRequestThread.line(e.sender, e.receiver));
+                    }
+                    out.append(newline);
+                }
+            }
+            if (out.length() > 0) {
+                try {
+                    EventLog.sink().write(out.toString());
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }
+            delivered.addAndGet(batch.size() - (stopping ? 1 : 0));
+
+            batch.clear();
+            byReceiver.clear();
+            out.setLength(0);
+        }
+    }
+
+    /**
+     * A queued chat message, or a friend request when message is null.
+     */
+    private static class Event {
+        static final Event STOP = new Event(null, null, null);
+
+        final UniversityStudent sender;
+        final UniversityStudent receiver;
+        final String message;
+
+        Event(UniversityStudent sender, UniversityStudent receiver, String message) {
+            this.sender = sender;
+            this.receiver = receiver;
+            this.message = message;
+        }
+    }
+}
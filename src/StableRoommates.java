@@ -0,0 +1,186 @@
+import java.util.*;
+
+/**
+ * Irving's two-phase algorithm for the stable roommates problem.
+ * Unlike proposer-only Gale-Shapley, it either finds a matching with no
+ * blocking pair or reports that none exists, in O(n^2) time at worst.
+ *
+ * Students only room with someone they listed who also listed them back.
+ * The reduced preference tables are array-backed: each student's list is a
+ * window [first, last] over its original list, and a pair is still present
+ * only while each student falls inside the other's window.
+ */
+public class StableRoommates {
+
+    /**
+     * Outcome of a matching run.
+     */
+    public static class Result {
+        private final boolean stable;
+        private final int[] partner;
+
+        Result(boolean stable, int[] partner) {
+            this.stable = stable;
+            this.partner = partner;
+        }
+
+        /**
+         * @return true if a stable matching was found
+         */
+        public boolean isStable() { return stable; }
+
+        /**
+         * @return partner id of the student, or -1 if unpaired or no stable matching exists
+         */
+        public int partner(int id) { return stable ? partner[id] : -1; }
+    }
+
+    private final RoommatePreferences prefs;
+    private final int[] first;
+    private final int[] last;
+
+    private StableRoommates(RoommatePreferences prefs) {
+        this.prefs = prefs;
+        int n = prefs.size();
+        first = new int[n];
+        last = new int[n];
+        for (int id = 0; id < n; id++) last[id] = prefs.listLength(id) - 1;
+    }
+
+    /**
+     * Runs both phases of Irving's algorithm.
+     *
+     * @param prefs translated preference lists
+     * @return the stable matching, or a result reporting that none exists
+     */
+    public static Result solve(RoommatePreferences prefs) {
+        return new StableRoommates(prefs).run();
+    }
+
+    private Result run() {
+        int n = prefs.size();
+        proposalPhase();
+
+        // Phase 2: eliminate rotations until every list has at most one entry.
+        // The sequence of visited students is kept between rotations (Irving's tail).
+        int[] sequence = new int[n + 1];
+        int[] position = new int[n];
+        Arrays.fill(position, -1);
+        int length = 0;
+        int scan = 0;
+        while (true) {
+            if (length == 0) {
+                while (scan < n && secondChoice(scan) < 0) scan++;
+                if (scan == n) break;
+                sequence[length] = scan;
+                position[scan] = length++;
+            }
+
+            int x = sequence[length - 1];
+            int second = secondChoice(x);
+            // The tail is trimmed before anyone whose list changed, so every student in
+            // it still has a second choice; a newly added one is a last choice, which
+            // keeps at least two entries in a stable table
+            assert second >= 0 : "student " + x + " in the sequence has no second choice";
+
+            int next = lastChoice(second);
+            if (position[next] < 0) {
+                sequence[length] = next;
+                position[next] = length++;
+                continue;
+            }
+
+            // Found a rotation: sequence[start..length). Eliminating it cuts each
+            // second choice's list after its rotation member; the tail is only kept
+            // up to the first of those students or the ones they drop.
+            int start = position[next];
+            int keep = start;
+            int[] seconds = new int[length - start];
+            for (int i = start; i < length; i++) seconds[i - start] = secondChoice(sequence[i]);
+            for (int i = start; i < length; i++) {
+                int y = seconds[i - start];
+                int cut = prefs.rank(y, sequence[i]);
+                keep = trimTo(keep, position, y);
+                for (int k = cut + 1; k <= last[y]; k++) keep = trimTo(keep, position, prefs.choice(y, k));
+                last[y] = cut;
+            }
+            for (int i = start; i < length; i++) {
+                if (firstChoice(sequence[i]) < 0) return new Result(false, null);
+            }
+            for (int i = keep; i < length; i++) position[sequence[i]] = -1;
+            length = keep;
+        }
+
+        int[] partner = new int[n];
+        for (int id = 0; id < n; id++) partner[id] = firstChoice(id);
+        for (int id = 0; id < n; id++) {
+            if (partner[id] >= 0 && partner[partner[id]] != id) return new Result(false, null);
+        }
+        return new Result(true, partner);
+    }
+
+    /**
+     * Phase 1: everyone proposes down their list; whoever receives a proposal
+     * drops everyone it likes less than the proposer.
+     */
+    private void proposalPhase() {
+        int n = prefs.size();
+        int[] holding = new int[n];
+        Arrays.fill(holding, -1);
+        int[] queue = new int[n];
+        int head = 0, size = 0;
+        for (int id = 0; id < n; id++) queue[size++] = id;
+
+        while (size > 0) {
+            int x = queue[head];
+            head = (head + 1) % n;
+            size--;
+
+            int y = firstChoice(x);
+            if (y < 0) continue;
+
+            int rejected = holding[y];
+            holding[y] = x;
+            last[y] = prefs.rank(y, x);
+            if (rejected >= 0 && rejected != x) {
+                queue[(head + size) % n] = rejected;
+                size++;
+            }
+        }
+    }
+
+    /**
+     * @return the smaller of keep and the student's position in the sequence
+     */
+    private static int trimTo(int keep, int[] position, int id) {
+        return position[id] >= 0 && position[id] < keep ? position[id] : keep;
+    }
+
+    /**
+     * @return true if position k of the student's list is still in its reduced list
+     */
+    private boolean present(int id, int k) {
+        int other = prefs.choice(id, k);
+        if (other == id || prefs.rank(id, other) != k) return false;
+        int back = prefs.rank(other, id);
+        return back >= first[other] && back <= last[other];
+    }
+
+    private int firstChoice(int id) {
+        while (first[id] <= last[id] && !present(id, first[id])) first[id]++;
+        return first[id] <= last[id] ? prefs.choice(id, first[id]) : -1;
+    }
+
+    private int secondChoice(int id) {
+        if (firstChoice(id) < 0) return -1;
+        for (int k = first[id] + 1; k <= last[id]; k++) {
+            if (present(id, k)) return prefs.choice(id, k);
+        }
+        return -1;
+    }
+
+    private int lastChoice(int id) {
+        while (last[id] >= first[id] && !present(id, last[id])) last[id]--;
+        return last[id] >= first[id] ? prefs.choice(id, last[id]) : -1;
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.*;
+
+/**
+ * Inverted indexes over the attributes that contribute to connection strength.
+ * Maps each internship, major, age and name to the ascending list of student
+ * positions that have it, so graph building only has to score pairs that
+ * share at least one of them.
+ */
+public class StudentAttributeIndex {
+
+    private Map<String, IntBucket> byInternship = new HashMap<>();
+    private Map<String, IntBucket> byMajor = new HashMap<>();
+    private Map<Integer, IntBucket> byAge = new HashMap<>();
+    private Map<String, IntBucket> byName = new HashMap<>();
+
+    /**
+     * Indexes every student by its position in the list.
+     *
+     * @param students students to index
+     */
+    public StudentAttributeIndex(List<UniversityStudent> students) {
+        for (int i = 0; i < students.size(); i++) {
+            add(i, students.get(i));
+        }
+    }
+
+    /**
+     * Adds a student under the given position. Positions must be added in
+     * ascending order so buckets stay sorted.
+     */
+    private void add(int id, UniversityStudent s) {
+        for (String internship : s.getPreviousInternships()) {
+            bucket(byInternship, internship).add(id);
+        }
+        bucket(byMajor, s.getMajor()).add(id);
+        bucket(byAge, s.getAge()).add(id);
+        bucket(byName, s.getName()).add(id);
+    }
+
+    /**
+     * Collects every position greater than {@code id} that shares an internship,
+     * major or age with the student, or is that student's assigned roommate.
+     * These are the only pairs that can have a connection strength above 0.
+     *
+     * @param id position of the student
+     * @param s the student at that position
+     * @param marks scratch array sized to the cohort, used to drop duplicates
+     * @param stamp value written into marks for this call; must differ between calls
+     * @param out receives candidate positions in ascending order
+     */
+    public void candidatesAfter(int id, UniversityStudent s, int[] marks, int stamp, IntBucket out) {
+        out.clear();
+        for (String internship : s.getPreviousInternships()) {
+            collectAfter(byInternship.get(internship), id, marks, stamp, out);
+        }
+        collectAfter(byMajor.get(s.getMajor()), id, marks, stamp, out);
+        collectAfter(byAge.get(s.getAge()), id, marks, stamp, out);
+        if (s.getRoommate() != null) {
+            collectAfter(byName.get(s.getRoommate().getName()), id, marks, stamp, out);
+        }
+        out.sort();
+    }
+
+    private static void collectAfter(IntBucket bucket, int id, int[] marks, int stamp, IntBucket out) {
+        if (bucket == null) return;
+        for (int k = bucket.firstGreaterThan(id); k < bucket.size(); k++) {
+            int j = bucket.get(k);
+            if (marks[j] != stamp) {
+                marks[j] = stamp;
+                out.add(j);
+            }
+        }
+    }
+
+    private static <K> IntBucket bucket(Map<K, IntBucket> map, K key) {
+        return map.computeIfAbsent(key, k -> new IntBucket());
+    }
+
+    /**
+     * Growable list of primitive ints.
+     */
+    public static class IntBucket {
+        private int[] items = new int[4];
+        private int size;
+
+        public void add(int value) {
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            items[size++] = value;
+        }
+
+        /**
+         * Inserts a value keeping ascending order; a no-op if it is already present.
+         */
+        public void insert(int value) {
+            int at = firstGreaterThan(value);
+            if (at > 0 && items[at - 1] == value) return;
+            if (at == size) {
+                add(value);
+                return;
+            }
+            if (size == items.length) items = Arrays.copyOf(items, size * 2);
+            System.arraycopy(items, at, items, at + 1, size - at);
+            items[at] = value;
+            size++;
+        }
+
+        /**
+         * Removes a value from an ascending bucket, if present.
+         */
+        public void remove(int value) {
+            int at = firstGreaterThan(value) - 1;
+            if (at < 0 || items[at] != value) return;
+            System.arraycopy(items, at + 1, items, at, size - at - 1);
+            size--;
+        }
+
+        public int get(int index) { return items[index]; }
+        public int size() { return size; }
+        public void clear() { size = 0; }
+        public void sort() { Arrays.sort(items, 0, size); }
+
+        /**
+         * @return index of the first value greater than {@code value}; assumes ascending order
+         */
+        public int firstGreaterThan(int value) {
+            int lo = 0, hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (items[mid] <= value) lo = mid + 1;
+                else hi = mid;
+            }
+            return lo;
+        }
+    }
+}
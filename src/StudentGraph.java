@@ -1,9 +1,17 @@
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * Graph representation of students and their connections.
  * Uses adjacency list with weighted edges. Only creates edges
  * when connection strength is greater than 0.
+ *
+ * Students can be added, removed or updated after construction. Updates are
+ * copy-on-write: a writer builds new lists for the affected students only and
+ * publishes them in one volatile write as an overlay on a base map shared with
+ * earlier versions. The overlay is folded into a fresh base once it outgrows
+ * the square root of the student count. Readers that need several calls to
+ * agree should work on {@link #snapshot()}.
  */
 public class StudentGraph {
 
@@ -20,7 +28,38 @@ public class StudentGraph {
         }
     }
 
-    private Map<UniversityStudent, List<Edge>> adjList = new HashMap<>();
+    /**
+     * Strategy used to find the student pairs that get an edge.
+     * Every mode produces the same edges, weights and neighbor order.
+     */
+    public enum BuildMode {
+        /** Scores every pair of students. */
+        PAIRWISE,
+        /** Scores only pairs that share an internship, major, age or roommate. */
+        BUCKETED,
+        /** Scores every pair of students, splitting rows across the common ForkJoinPool. */
+        PARALLEL
+    }
+
+    /** Rows scored by one fork-join leaf task. */
+    private static final int ROWS_PER_TASK = 16;
+    /** Overlay size below which it is never folded into the base map. */
+    private static final int MIN_FOLD_ROWS = 64;
+
+    private volatile Version current;
+    private final boolean readOnly;
+
+    // Writer state, created on the first update and guarded by this graph's monitor.
+    // Sequence numbers order students like positions in the constructor's list, so
+    // updated neighbor lists keep the order a full rebuild would give them.
+    private UniversityStudent[] initialOrder;
+    private Map<UniversityStudent, Integer> sequence;
+    private Map<Integer, UniversityStudent> bySequence;
+    private CohortColumns columns;
+    private int nextSequence;
+    private int[] weights = new int[0];
+    private int[] marks = new int[0];
+    private int markStamp;
 
     /**
      * Builds a graph from the list of students.
@@ -29,12 +68,79 @@ public class StudentGraph {
      * @param students list of students to include in graph
      */
     public StudentGraph(List<UniversityStudent> students) {
+        this(students, BuildMode.PAIRWISE);
+    }
+
+    /**
+     * Builds a graph from the list of students using the given build mode.
+     *
+     * @param students list of students to include in graph
+     * @param mode how candidate pairs are found
+     */
+    public StudentGraph(List<UniversityStudent> students, BuildMode mode) {
+        readOnly = false;
+        initialOrder = students.toArray(new UniversityStudent[0]);
+
         // Initialize adjacency list for all students
+        Map<UniversityStudent, List<Edge>> adjList = new HashMap<>();
         for (UniversityStudent s : students) {
             adjList.put(s, new ArrayList<>());
         }
-        
-        // Build edges between students
+
+        if (mode == BuildMode.BUCKETED) {
+            buildBucketed(students, adjList);
+        } else if (mode == BuildMode.PARALLEL) {
+            buildParallel(students, adjList);
+        } else {
+            buildPairwise(students, adjList);
+        }
+        current = new Version(adjList);
+    }
+
+    /**
+     * Read-only view over one published version.
+     */
+    private StudentGraph(Version version) {
+        this.current = version;
+        this.readOnly = true;
+    }
+
+    /**
+     * Updatable graph over an adjacency map built elsewhere.
+     */
+    private StudentGraph(List<UniversityStudent> students, Map<UniversityStudent, List<Edge>> adjList) {
+        this.current = new Version(adjList);
+        this.readOnly = false;
+        this.initialOrder = students.toArray(new UniversityStudent[0]);
+    }
+
+    /**
+     * Creates a graph with the edges of a CSR graph, without scoring any pairs.
+     * Students keep their CSR ids as their order, and neighbor lists keep the
+     * CSR order.
+     *
+     * @param graph CSR graph to copy
+     * @return updatable graph with exactly those edges
+     */
+    public static StudentGraph fromCompact(CompactStudentGraph graph) {
+        int n = graph.size();
+        List<UniversityStudent> students = new ArrayList<>(n);
+        Map<UniversityStudent, List<Edge>> adj = new HashMap<>();
+        for (int id = 0; id < n; id++) {
+            List<Edge> edges = new ArrayList<>(graph.degree(id));
+            for (int e = graph.firstEdge(id); e < graph.endEdge(id); e++) {
+                edges.add(new Edge(graph.student(graph.target(e)), graph.weight(e)));
+            }
+            students.add(graph.student(id));
+            adj.put(graph.student(id), edges);
+        }
+        return new StudentGraph(students, adj);
+    }
+
+    /**
+     * Scores every pair of students.
+     */
+    private static void buildPairwise(List<UniversityStudent> students, Map<UniversityStudent, List<Edge>> adjList) {
         for (int i = 0; i < students.size(); i++) {
             UniversityStudent s1 = students.get(i);
             for (int j = i + 1; j < students.size(); j++) {
@@ -51,35 +157,421 @@ public class StudentGraph {
         }
     }
 
+    /**
+     * Scores only the pairs found through the attribute index. Pairs are visited
+     * in the same (i, j) order as the pairwise loop, so neighbor lists match it.
+     */
+    private static void buildBucketed(List<UniversityStudent> students, Map<UniversityStudent, List<Edge>> adjList) {
+        StudentAttributeIndex index = new StudentAttributeIndex(students);
+        StudentAttributeIndex.IntBucket candidates = new StudentAttributeIndex.IntBucket();
+        int[] marks = new int[students.size()];
+        Arrays.fill(marks, -1);
+
+        for (int i = 0; i < students.size(); i++) {
+            UniversityStudent s1 = students.get(i);
+            index.candidatesAfter(i, s1, marks, i, candidates);
+            for (int k = 0; k < candidates.size(); k++) {
+                UniversityStudent s2 = students.get(candidates.get(k));
+
+                int weight = s1.calculateConnectionStrength(s2);
+
+                if (weight > 0) {
+                    adjList.get(s1).add(new Edge(s2, weight));
+                    adjList.get(s2).add(new Edge(s1, weight));
+                }
+            }
+        }
+    }
+
+    /**
+     * Scores rows in parallel into per-row buffers, then replays the edges in
+     * row order on the calling thread. Only the merge touches the shared lists,
+     * so neighbor order matches the pairwise loop.
+     */
+    private static void buildParallel(List<UniversityStudent> students, Map<UniversityStudent, List<Edge>> adjList) {
+        UniversityStudent[] array = students.toArray(new UniversityStudent[0]);
+        int[][] rowTargets = new int[array.length][];
+        int[][] rowWeights = new int[array.length][];
+
+        // One pair of scratch rows per worker thread, dropped with the map when the build ends
+        Map<Thread, int[][]> scratch = new ConcurrentHashMap<>();
+        ForkJoinPool.commonPool().invoke(new RowScorer(array, rowTargets, rowWeights, scratch, 0, array.length));
+
+        for (int i = 0; i < array.length; i++) {
+            UniversityStudent s1 = array[i];
+            for (int k = 0; k < rowTargets[i].length; k++) {
+                UniversityStudent s2 = array[rowTargets[i][k]];
+                adjList.get(s1).add(new Edge(s2, rowWeights[i][k]));
+                adjList.get(s2).add(new Edge(s1, rowWeights[i][k]));
+            }
+        }
+    }
+
+    /**
+     * Scores rows [from, to) of the pair triangle, writing each row's
+     * positive-weight neighbors into its own slot of the row buffers.
+     */
+    private static class RowScorer extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final UniversityStudent[] students;
+        private final int[][] rowTargets;
+        private final int[][] rowWeights;
+        private final Map<Thread, int[][]> scratch;
+        private final int from;
+        private final int to;
+
+        RowScorer(UniversityStudent[] students, int[][] rowTargets, int[][] rowWeights,
+                  Map<Thread, int[][]> scratch, int from, int to) {
+            this.students = students;
+            this.rowTargets = rowTargets;
+            this.rowWeights = rowWeights;
+            this.scratch = scratch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > ROWS_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new RowScorer(students, rowTargets, rowWeights, scratch, from, mid),
+                          new RowScorer(students, rowTargets, rowWeights, scratch, mid, to));
+                return;
+            }
+            int[][] rows = scratch.computeIfAbsent(Thread.currentThread(),
+                    t -> new int[][] { new int[students.length], new int[students.length] });
+            int[] targets = rows[0];
+            int[] weights = rows[1];
+            for (int i = from; i < to; i++) {
+                int count = 0;
+                for (int j = i + 1; j < students.length; j++) {
+                    int weight = students[i].calculateConnectionStrength(students[j]);
+                    if (weight > 0) {
+                        targets[count] = j;
+                        weights[count] = weight;
+                        count++;
+                    }
+                }
+                rowTargets[i] = Arrays.copyOf(targets, count);
+                rowWeights[i] = Arrays.copyOf(weights, count);
+            }
+        }
+    }
+
     /**
      * @return all students in the graph
      */
     public List<UniversityStudent> getAllNodes() {
-        return new ArrayList<>(adjList.keySet());
+        return current.nodes();
     }
 
     /**
      * Gets edges connected to a student.
+     * Rows are shared between versions and snapshots, so the list is read-only.
      * 
      * @param student the student to get neighbors for
-     * @return list of edges
+     * @return read-only list of edges, empty if the student is not in the graph
      */
     public List<Edge> getNeighbors(UniversityStudent student) {
-        return adjList.getOrDefault(student, new ArrayList<>());
+        List<Edge> edges = current.row(student);
+        return edges != null ? Collections.unmodifiableList(edges) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the compressed sparse row form of this graph, building it on first use.
+     * After that each update patches it, rewriting only the rows it changed, and
+     * it is rebuilt only when a patch would leave its pools mostly dead slots.
+     *
+     * @return read-only CSR view with dense int ids
+     */
+    public CompactStudentGraph compact() {
+        Version v = current;
+        CompactStudentGraph c = v.compact;
+        if (c == null) {
+            c = new CompactStudentGraph(new StudentGraph(v));
+            v.compact = c;
+        }
+        return c;
+    }
+
+    /**
+     * Returns a read-only graph frozen at the current version. Later updates to
+     * this graph are not visible through it.
+     *
+     * @return consistent view of the current edges
+     */
+    public StudentGraph snapshot() {
+        return new StudentGraph(current);
+    }
+
+    /**
+     * @return number of updates applied so far; a cache keyed on it is stale once it changes
+     */
+    public long version() {
+        return current.number;
+    }
+
+    /**
+     * One published state of the graph: a base map shared between versions and
+     * the rows replaced since it was built. Neither map is modified once published.
+     */
+    private static class Version {
+        final Map<UniversityStudent, List<Edge>> base;
+        // Replaced rows in the order first changed; a Row without edges marks a removed student
+        final Map<UniversityStudent, Row> overlay;
+        final int size;
+        final long number;
+        volatile CompactStudentGraph compact;
+
+        Version(Map<UniversityStudent, List<Edge>> base) {
+            this(base, new LinkedHashMap<>(), base.size(), 0);
+        }
+
+        Version(Map<UniversityStudent, List<Edge>> base, Map<UniversityStudent, Row> overlay, int size, long number) {
+            this.base = base;
+            this.overlay = overlay;
+            this.size = size;
+            this.number = number;
+        }
+
+        /**
+         * @return the student's neighbors, or null if it is not in the graph
+         */
+        List<Edge> row(UniversityStudent student) {
+            Row r = overlay.get(student);
+            return r != null ? r.edges : base.get(student);
+        }
+
+        List<UniversityStudent> nodes() {
+            List<UniversityStudent> nodes = new ArrayList<>(size);
+            for (UniversityStudent s : base.keySet()) {
+                Row r = overlay.get(s);
+                if (r == null) nodes.add(s);
+                else if (r.edges != null) nodes.add(r.student);
+            }
+            for (Row r : overlay.values()) {
+                if (r.edges != null && !base.containsKey(r.student)) nodes.add(r.student);
+            }
+            return nodes;
+        }
+    }
+
+    /**
+     * A replaced neighbor list, keeping the student object it now belongs to.
+     */
+    private static class Row {
+        final UniversityStudent student;
+        final List<Edge> edges;
+
+        Row(UniversityStudent student, List<Edge> edges) {
+            this.student = student;
+            this.edges = edges;
+        }
+    }
+
+    /**
+     * Adds a student and connects it to everyone it has a positive connection strength with.
+     * The student is ordered after all existing students.
+     *
+     * @param student the student to add
+     * @throws IllegalArgumentException if a student with the same name is already in the graph
+     */
+    public synchronized void addStudent(UniversityStudent student) {
+        ensureWritable();
+        if (sequence.containsKey(student)) {
+            throw new IllegalArgumentException("Student already in graph: " + student.getName());
+        }
+        int seq = nextSequence++;
+        sequence.put(student, seq);
+        bySequence.put(seq, student);
+        columns.set(seq, student);
+
+        Map<UniversityStudent, List<Edge>> changed = new LinkedHashMap<>();
+        changed.put(student, connect(changed, student, seq, Collections.emptyList()));
+        commit(changed, null, 1);
+    }
+
+    /**
+     * Removes a student and all of its edges.
+     *
+     * @param student the student to remove
+     * @return true if the student was in the graph
+     */
+    public synchronized boolean removeStudent(UniversityStudent student) {
+        ensureWritable();
+        Integer seq = sequence.get(student);
+        if (seq == null) return false;
+
+        Map<UniversityStudent, List<Edge>> changed = new LinkedHashMap<>();
+        for (Edge e : current.row(student)) {
+            changed.put(e.neighbor, withEdge(current.row(e.neighbor), student, 0));
+        }
+        columns.remove(seq);
+        sequence.remove(student);
+        bySequence.remove(seq);
+        commit(changed, student, -1);
+        return true;
+    }
+
+    /**
+     * Recomputes a student's edges after its attributes or roommate changed.
+     * The argument may be the same object, edited in place, or a replacement with
+     * the same name. Only pairs involving this student are rescored; when a
+     * roommate assignment changes, update both roommates.
+     *
+     * @param student the changed student
+     * @throws IllegalArgumentException if no student with that name is in the graph
+     */
+    public synchronized void updateStudent(UniversityStudent student) {
+        ensureWritable();
+        Integer seq = sequence.get(student);
+        if (seq == null) {
+            throw new IllegalArgumentException("Student not in graph: " + student.getName());
+        }
+
+        List<Edge> old = current.row(student);
+        // Re-key with the given object in case it replaces the old one
+        sequence.remove(student);
+        sequence.put(student, seq);
+        bySequence.put(seq, student);
+        columns.set(seq, student);
+
+        Map<UniversityStudent, List<Edge>> changed = new LinkedHashMap<>();
+        List<Edge> edges = connect(changed, student, seq, old);
+        // The student's own row goes in last, replacing any copy of it
+        changed.remove(student);
+        changed.put(student, edges);
+        commit(changed, null, 0);
+    }
+
+    /**
+     * Publishes the next version: the changed rows go into a copy of the overlay,
+     * which is folded into a new base map once it grows past the square root of
+     * the student count. A CSR form already in use is patched to match.
+     *
+     * @param changed new neighbor lists by student
+     * @param removed student removed by this update, or null
+     * @param delta change in the number of students
+     */
+    private void commit(Map<UniversityStudent, List<Edge>> changed, UniversityStudent removed, int delta) {
+        Version v = current;
+        Map<UniversityStudent, Row> overlay = new LinkedHashMap<>(v.overlay);
+        for (Map.Entry<UniversityStudent, List<Edge>> e : changed.entrySet()) {
+            overlay.put(e.getKey(), new Row(e.getKey(), e.getValue()));
+        }
+        if (removed != null) overlay.put(removed, new Row(removed, null));
+        int size = v.size + delta;
+
+        Map<UniversityStudent, List<Edge>> base = v.base;
+        if (overlay.size() > Math.max(MIN_FOLD_ROWS, (int) Math.sqrt(size))) {
+            base = new HashMap<>(base);
+            for (Row r : overlay.values()) {
+                // Remove first so a replacement object becomes the key
+                base.remove(r.student);
+                if (r.edges != null) base.put(r.student, r.edges);
+            }
+            overlay = new LinkedHashMap<>();
+        }
+
+        Version next = new Version(base, overlay, size, v.number + 1);
+        CompactStudentGraph c = v.compact;
+        if (c != null) next.compact = c.patch(changed, removed, next::row);
+        current = next;
+    }
+
+    /**
+     * Scores the student against the whole cohort in one batch over the columns,
+     * and puts the neighbor lists that change, because of a new, changed or lost
+     * edge, into {@code changed}.
+     *
+     * @return the student's new neighbor list, ordered by sequence
+     */
+    private List<Edge> connect(Map<UniversityStudent, List<Edge>> changed, UniversityStudent student,
+                               int seq, List<Edge> previous) {
+        int n = columns.size();
+        if (marks.length < n) marks = Arrays.copyOf(marks, Math.max(n, marks.length * 2));
+        if (weights.length < n) weights = new int[Math.max(n, weights.length * 2)];
+        // The earlier student scores each pair, as in the pairwise build
+        columns.edgeWeights(seq, weights);
+        int stamp = ++markStamp;
+        for (Edge e : previous) marks[sequence.get(e.neighbor)] = stamp;
+
+        List<Edge> edges = new ArrayList<>();
+        for (int otherSeq = 0; otherSeq < n; otherSeq++) {
+            int weight = weights[otherSeq];
+            if (weight <= 0 && marks[otherSeq] != stamp) continue;
+            UniversityStudent other = columns.student(otherSeq);
+            if (weight > 0) edges.add(new Edge(other, weight));
+            List<Edge> row = changed.containsKey(other) ? changed.get(other) : current.row(other);
+            List<Edge> updated = withEdge(row, student, weight);
+            if (updated != row) changed.put(other, updated);
+        }
+        return edges;
+    }
+
+    /**
+     * Copies a neighbor list with the edge to {@code student} replaced, inserted at
+     * its sequence position, or dropped when the weight is 0.
+     */
+    private List<Edge> withEdge(List<Edge> edges, UniversityStudent student, int weight) {
+        int seq = sequence.get(student);
+        if (weight <= 0 && !hasEdgeTo(edges, student)) return edges;
+        List<Edge> result = new ArrayList<>(edges.size() + 1);
+        boolean placed = weight <= 0;
+        for (Edge e : edges) {
+            if (e.neighbor.equals(student)) continue;
+            if (!placed && sequence.get(e.neighbor) > seq) {
+                result.add(new Edge(student, weight));
+                placed = true;
+            }
+            result.add(e);
+        }
+        if (!placed) result.add(new Edge(student, weight));
+        return result;
+    }
+
+    private static boolean hasEdgeTo(List<Edge> edges, UniversityStudent student) {
+        for (Edge e : edges) {
+            if (e.neighbor.equals(student)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Sets up sequence numbers and the scoring columns on the first update.
+     */
+    private void ensureWritable() {
+        if (readOnly) throw new UnsupportedOperationException("Graph snapshots are read-only");
+        if (sequence != null) return;
+        sequence = new HashMap<>();
+        bySequence = new HashMap<>();
+        columns = new CohortColumns();
+        for (UniversityStudent s : initialOrder) {
+            Integer previous = sequence.put(s, nextSequence);
+            if (previous != null) bySequence.remove(previous);
+            bySequence.put(nextSequence, s);
+            nextSequence++;
+        }
+        for (Map.Entry<Integer, UniversityStudent> entry : bySequence.entrySet()) {
+            columns.set(entry.getKey(), entry.getValue());
+        }
+        initialOrder = null;
     }
 
     /**
-     * Prints the graph structure to console.
+     * Prints the graph structure to the {@link EventLog}.
      */
     public void displayGraph() {
-        for (UniversityStudent s : adjList.keySet()) {
-            List<Edge> edges = adjList.get(s);
+        Version v = current;
+        for (UniversityStudent s : v.nodes()) {
+            List<Edge> edges = v.row(s);
             if (edges.isEmpty()) {
-                System.out.println(s.name + " has no connections (isolated node)");
+                EventLog.println(s.name + " has no connections (isolated node)");
             } else {
-                System.out.println(s.name + " connected to:");
+                EventLog.println(s.name + " connected to:");
                 for (Edge e : edges) {
-                    System.out.println("   → " + e.neighbor.name + " (strength " + e.weight + ")");
+                    EventLog.println("   → " + e.neighbor.name + " (strength " + e.weight + ")");
                 }
             }
         }
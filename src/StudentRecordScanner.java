@@ -0,0 +1,425 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * Byte-level reader behind {@link DataParser}. Scans a byte range of a file
+ * through memory-mapped windows and builds students straight from the bytes:
+ * no regexes, no per-line strings, and only field values are decoded.
+ * Line numbers count from 1 at the start of the range.
+ */
+public class StudentRecordScanner {
+
+    static final String[] BLOCK_FIELDS = {
+        "Name", "Age", "Gender", "Year", "Major", "GPA", "RoommatePreferences", "PreviousInternships"
+    };
+    private static final int NAME = 0, AGE = 1, GENDER = 2, YEAR = 3, MAJOR = 4, GPA = 5, PREFS = 6, INTERNSHIPS = 7;
+    private static final byte[][] FIELD_KEYS = new byte[BLOCK_FIELDS.length][];
+    private static final byte[] STUDENT_HEADER = "Student:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NONE = "none".getBytes(StandardCharsets.US_ASCII);
+    private static final int PIPE_FIELDS = 8;
+
+    static {
+        for (int k = 0; k < BLOCK_FIELDS.length; k++) {
+            FIELD_KEYS[k] = BLOCK_FIELDS[k].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final FileChannel channel;
+    private final long start;
+    private final long end;
+    private final long window;
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private int pos;
+    // Current line, trimmed, as offsets into buffer
+    private int lineStart;
+    private int lineEnd;
+    private int lineNumber;
+    private byte[] scratch = new byte[256];
+    private int[] fieldStarts = new int[PIPE_FIELDS + 1];
+    private int[] fieldEnds = new int[PIPE_FIELDS + 1];
+    // Encodes the majors and companies of the students built by scan
+    private AttributeDictionary dictionary;
+
+    /**
+     * @param channel open file
+     * @param from first byte to read
+     * @param to end of the range, exclusive
+     * @param window most bytes mapped at once; must exceed the longest line
+     */
+    StudentRecordScanner(FileChannel channel, long from, long to, long window) throws IOException {
+        this.channel = channel;
+        this.start = from;
+        this.end = to;
+        this.window = window;
+        map(from);
+    }
+
+    /**
+     * @return offset of the first byte after a UTF-8 byte order mark, or 0 if there is none
+     */
+    static long dataStart(FileChannel channel) throws IOException {
+        if (channel.size() < 3) return 0;
+        ByteBuffer head = ByteBuffer.allocate(3);
+        while (head.hasRemaining() && channel.read(head, head.position()) > 0) { }
+        return head.get(0) == (byte) 0xEF && head.get(1) == (byte) 0xBB && head.get(2) == (byte) 0xBF ? 3 : 0;
+    }
+
+    /**
+     * Looks at the first non-blank line and rewinds.
+     *
+     * @return BLOCK if it is a "Student:" header, otherwise PIPE
+     */
+    DataParser.Format detectFormat() throws IOException {
+        DataParser.Format format = DataParser.Format.PIPE;
+        while (nextLine()) {
+            if (lineStart == lineEnd) continue;
+            if (isStudentHeader()) format = DataParser.Format.BLOCK;
+            break;
+        }
+        map(start);
+        lineNumber = 0;
+        return format;
+    }
+
+    /**
+     * Parses every record in the range, in order.
+     *
+     * @param dictionary encodes the students' majors and companies
+     */
+    void scan(DataParser.Format format, AttributeDictionary dictionary, Consumer<UniversityStudent> out)
+            throws IOException {
+        this.dictionary = dictionary;
+        if (format == DataParser.Format.BLOCK) scanBlocks(out);
+        else scanPipeLines(out);
+    }
+
+    /**
+     * @return number of lines read so far
+     */
+    int lineCount() {
+        return lineNumber;
+    }
+
+    /**
+     * Finds where the first record starting at or after {@code from} begins:
+     * the next line start for the pipe format, the next "Student:" header for
+     * the block format.
+     *
+     * @return offset of that record, or {@code end} if there is none
+     */
+    static long recordStartAfter(FileChannel channel, long from, long end, DataParser.Format format,
+                                 long window) throws IOException {
+        if (from >= end) return end;
+        // Start one byte early and skip the rest of that line, so a line starting exactly at from is kept
+        StudentRecordScanner scanner = new StudentRecordScanner(channel, from - 1, end, window);
+        scanner.nextLine();
+        while (true) {
+            long lineAt = scanner.bufferStart + scanner.pos;
+            if (!scanner.nextLine()) return end;
+            if (format == DataParser.Format.PIPE || scanner.isStudentHeader()) return lineAt;
+        }
+    }
+
+    // ---- pipe format: Name|Age|Gender|Year|Major|GPA|Pref1,Pref2|Company1,Company2
+
+    private void scanPipeLines(Consumer<UniversityStudent> out) throws IOException {
+        while (nextLine()) {
+            if (lineStart == lineEnd) continue;
+            out.accept(pipeRecord());
+        }
+    }
+
+    private UniversityStudent pipeRecord() throws IOException {
+        int count = 0;
+        int fieldStart = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || buffer.get(i) == '|') {
+                if (count == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, count * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, count * 2);
+                }
+                fieldStarts[count] = fieldStart;
+                fieldEnds[count++] = i;
+                fieldStart = i + 1;
+            }
+        }
+        // Trailing empty fields do not count, as with String.split
+        while (count > 0 && fieldStarts[count - 1] == fieldEnds[count - 1]) count--;
+        if (count < PIPE_FIELDS) {
+            throw new DataParser.ParseException("Malformed line: " + text(lineStart, lineEnd), lineNumber);
+        }
+
+        String name = field(NAME);
+        int age = intField(AGE, "age", name);
+        String gender = field(GENDER);
+        int year = intField(YEAR, "year", name);
+        String major = field(MAJOR);
+        double gpa = doubleField(GPA, "GPA", name);
+        List<String> prefs = list(trimStart(fieldStarts[PREFS], fieldEnds[PREFS]), trimEnd(fieldStarts[PREFS], fieldEnds[PREFS]));
+        List<String> internships = list(trimStart(fieldStarts[INTERNSHIPS], fieldEnds[INTERNSHIPS]),
+                                        trimEnd(fieldStarts[INTERNSHIPS], fieldEnds[INTERNSHIPS]));
+        return new UniversityStudent(name, age, gender, year, major, gpa, prefs, internships, dictionary);
+    }
+
+    private String field(int k) {
+        int from = trimStart(fieldStarts[k], fieldEnds[k]);
+        return text(from, trimEnd(from, fieldEnds[k]));
+    }
+
+    private int intField(int k, String label, String name) {
+        int from = trimStart(fieldStarts[k], fieldEnds[k]);
+        int to = trimEnd(from, fieldEnds[k]);
+        long value = parseInt(from, to);
+        if (value == Long.MIN_VALUE) throw invalidNumber(label, text(from, to), name, lineNumber);
+        return (int) value;
+    }
+
+    private double doubleField(int k, String label, String name) {
+        String value = field(k);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw invalidNumber(label, value, name, lineNumber);
+        }
+    }
+
+    // ---- block format: "Student:" header followed by "Key: value" lines
+
+    private void scanBlocks(Consumer<UniversityStudent> out) throws IOException {
+        BlockRecord record = new BlockRecord();
+        boolean more = nextLine();
+        while (more) {
+            if (lineStart == lineEnd) {
+                more = nextLine();
+                continue;
+            }
+            if (!isStudentHeader()) {
+                throw new DataParser.ParseException("Incorrect format in line: '" + text(lineStart, lineEnd)
+                        + "'. Expected format 'Student:'.", lineNumber);
+            }
+            record.reset(lineNumber);
+            while ((more = nextLine()) && !isStudentHeader()) {
+                if (lineStart != lineEnd) readField(record);
+            }
+            out.accept(record.build(dictionary));
+        }
+    }
+
+    private void readField(BlockRecord record) throws IOException {
+        int colon = indexOf((byte) ':', lineStart, lineEnd);
+        int k = colon < 0 ? -1 : fieldIndex(lineStart, trimEnd(lineStart, colon));
+        if (k < 0) {
+            throw new DataParser.ParseException("Incorrect format in line: '" + text(lineStart, lineEnd)
+                    + "'. Expected format '" + record.expectedField() + ": <value>'.", lineNumber);
+        }
+        int from = trimStart(colon + 1, lineEnd);
+        record.seen[k] = true;
+        record.lines[k] = lineNumber;
+        switch (k) {
+            case AGE:
+            case YEAR:
+                long value = parseInt(from, lineEnd);
+                record.invalid[k] = value == Long.MIN_VALUE ? text(from, lineEnd) : null;
+                if (k == AGE) record.age = (int) value;
+                else record.year = (int) value;
+                break;
+            case GPA:
+                String gpa = text(from, lineEnd);
+                try {
+                    record.gpa = Double.parseDouble(gpa);
+                    record.invalid[k] = null;
+                } catch (NumberFormatException e) {
+                    record.invalid[k] = gpa;
+                }
+                break;
+            case PREFS:
+                record.prefs = list(from, lineEnd);
+                break;
+            case INTERNSHIPS:
+                record.internships = list(from, lineEnd);
+                break;
+            default:
+                record.text[k] = text(from, lineEnd);
+        }
+    }
+
+    private int fieldIndex(int from, int to) {
+        for (int k = 0; k < FIELD_KEYS.length; k++) {
+            if (matches(from, to, FIELD_KEYS[k], false)) return k;
+        }
+        return -1;
+    }
+
+    private boolean isStudentHeader() {
+        return matches(lineStart, lineEnd, STUDENT_HEADER, false);
+    }
+
+    /**
+     * Fields of one block record as they are read. Checks run once the record ends,
+     * so errors can name the student whatever order the lines came in.
+     */
+    private static class BlockRecord {
+        final boolean[] seen = new boolean[BLOCK_FIELDS.length];
+        final int[] lines = new int[BLOCK_FIELDS.length];
+        final String[] text = new String[BLOCK_FIELDS.length];
+        final String[] invalid = new String[BLOCK_FIELDS.length];
+        int header;
+        int age;
+        int year;
+        double gpa;
+        List<String> prefs;
+        List<String> internships;
+
+        void reset(int headerLine) {
+            Arrays.fill(seen, false);
+            Arrays.fill(text, null);
+            Arrays.fill(invalid, null);
+            header = headerLine;
+        }
+
+        String expectedField() {
+            for (int k = 0; k < seen.length; k++) {
+                if (!seen[k]) return BLOCK_FIELDS[k];
+            }
+            return "<field>";
+        }
+
+        UniversityStudent build(AttributeDictionary dictionary) throws DataParser.ParseException {
+            String name = text[NAME];
+            for (int k = 0; k < seen.length; k++) {
+                if (!seen[k]) {
+                    String entry = name != null ? "student entry for " + name : "unnamed student entry";
+                    throw new DataParser.ParseException("Missing required field '" + BLOCK_FIELDS[k]
+                            + "' in " + entry + ".", header);
+                }
+            }
+            if (invalid[AGE] != null) throw invalidNumber("age", invalid[AGE], name, lines[AGE]);
+            if (invalid[YEAR] != null) throw invalidNumber("year", invalid[YEAR], name, lines[YEAR]);
+            if (invalid[GPA] != null) throw invalidNumber("GPA", invalid[GPA], name, lines[GPA]);
+            return new UniversityStudent(name, age, text[GENDER], year, text[MAJOR], gpa, prefs, internships,
+                                         dictionary);
+        }
+    }
+
+    private static DataParser.InvalidNumberException invalidNumber(String label, String value, String name, int line) {
+        return new DataParser.InvalidNumberException("Invalid number format for " + label + ": '" + value
+                + "' in student entry for " + name + ".", line);
+    }
+
+    // ---- shared byte helpers
+
+    /**
+     * Advances to the next line, remapping when it crosses the end of the window.
+     *
+     * @return false at the end of the range
+     */
+    private boolean nextLine() throws IOException {
+        if (bufferStart + pos >= end) return false;
+        int newline = indexOf((byte) '\n', pos, buffer.limit());
+        if (newline < 0 && bufferStart + buffer.limit() < end) {
+            map(bufferStart + pos);
+            newline = indexOf((byte) '\n', 0, buffer.limit());
+            if (newline < 0 && bufferStart + buffer.limit() < end) {
+                throw new DataParser.ParseException("Line longer than " + window + " bytes", lineNumber + 1);
+            }
+        }
+        int rawEnd = newline < 0 ? buffer.limit() : newline;
+        lineNumber++;
+        lineStart = trimStart(pos, rawEnd);
+        lineEnd = trimEnd(lineStart, rawEnd);
+        pos = newline < 0 ? rawEnd : newline + 1;
+        return true;
+    }
+
+    private void map(long at) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(window, end - at));
+        bufferStart = at;
+        pos = 0;
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == b) return i;
+        }
+        return -1;
+    }
+
+    // Same whitespace rule as String.trim
+    private int trimStart(int from, int to) {
+        while (from < to && (buffer.get(from) & 0xff) <= ' ') from++;
+        return from;
+    }
+
+    private int trimEnd(int from, int to) {
+        while (to > from && (buffer.get(to - 1) & 0xff) <= ' ') to--;
+        return to;
+    }
+
+    private boolean matches(int from, int to, byte[] ascii, boolean ignoreCase) {
+        if (to - from != ascii.length) return false;
+        for (int i = 0; i < ascii.length; i++) {
+            byte b = buffer.get(from + i);
+            if (ignoreCase) b |= 0x20;
+            if (b != ascii[i]) return false;
+        }
+        return true;
+    }
+
+    private String text(int from, int to) {
+        int length = to - from;
+        if (scratch.length < length) scratch = new byte[Math.max(length, scratch.length * 2)];
+        buffer.get(from, scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the value, or Long.MIN_VALUE if the bytes are not an int
+     */
+    private long parseInt(int from, int to) {
+        if (from == to) return Long.MIN_VALUE;
+        boolean negative = false;
+        byte first = buffer.get(from);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            if (++from == to) return Long.MIN_VALUE;
+        }
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) return Long.MIN_VALUE;
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) return Long.MIN_VALUE;
+        }
+        if (negative) value = -value;
+        return value < Integer.MIN_VALUE || value > Integer.MAX_VALUE ? Long.MIN_VALUE : value;
+    }
+
+    /**
+     * Comma-separated list of a trimmed range. "None" or an empty range gives an
+     * empty list; items are trimmed and trailing empty items dropped, as with
+     * String.split.
+     */
+    private List<String> list(int from, int to) {
+        List<String> items = new ArrayList<>();
+        if (from == to || matches(from, to, NONE, true)) return items;
+        int emptyItems = 0;
+        int itemStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && buffer.get(i) != ',') continue;
+            if (i == itemStart) {
+                emptyItems++;
+            } else {
+                for (; emptyItems > 0; emptyItems--) items.add("");
+                int s = trimStart(itemStart, i);
+                items.add(text(s, trimEnd(s, i)));
+            }
+            itemStart = i + 1;
+        }
+        return items;
+    }
+}
@@ -11,6 +11,8 @@ public class UniversityStudent extends Student {
     protected int age;
     protected String gender;
     protected int year;
+    // Scoring uses ids encoded from major and previousInternships; change them
+    // through setMajor, setPreviousInternships or the internship list itself
     protected String major;
     protected double gpa;
     protected List<String> roommatePreferences;
@@ -19,11 +21,29 @@ public class UniversityStudent extends Student {
     /**
      * Creates a new university student.
      */
-    private List<String> messageHistory = new ArrayList<>();
+    private final MessageLog messageLog = new MessageLog();
     private UniversityStudent assignedRoommate;
 
+    private final AttributeDictionary dictionary;
+    // Dictionary-encoded major and internships used for scoring, replaced as a unit
+    private volatile Encoded encoded;
+
     public UniversityStudent(String name, int age, String gender, int year, String major, double gpa,
                              List<String> roommatePreferences, List<String> previousInternships) {
+        this(name, age, gender, year, major, gpa, roommatePreferences, previousInternships,
+             AttributeDictionary.SHARED);
+    }
+
+    /**
+     * Creates a student whose major and internships are encoded with the given
+     * dictionary. Students sharing a dictionary are scored on ids; others fall
+     * back to comparing the strings.
+     *
+     * @param dictionary ids for majors and companies, usually one per cohort
+     */
+    public UniversityStudent(String name, int age, String gender, int year, String major, double gpa,
+                             List<String> roommatePreferences, List<String> previousInternships,
+                             AttributeDictionary dictionary) {
         this.name = name;
         this.age = age;
         this.gender = gender;
@@ -31,7 +51,9 @@ public class UniversityStudent extends Student {
         this.major = major;
         this.gpa = gpa;
         this.roommatePreferences = new ArrayList<>(roommatePreferences);
-        this.previousInternships = new ArrayList<>(previousInternships);
+        this.previousInternships = new InternshipList(previousInternships);
+        this.dictionary = dictionary;
+        encode();
     }
 
     public String getName() { return name; }
@@ -41,12 +63,52 @@ public class UniversityStudent extends Student {
     public String getMajor() { return major; }
     public double getGpa() { return gpa; }
     public List<String> getRoommatePreferences() { return roommatePreferences; }
+
+    /**
+     * @return the internships; changes made through this list update the scoring ids
+     */
     public List<String> getPreviousInternships() { return previousInternships; }
     public UniversityStudent getRoommate() { return assignedRoommate; }
     public void setAssignedRoommate(UniversityStudent roommate) { this.assignedRoommate = roommate; }
 
-    public void addMessageToHistory(String message) { messageHistory.add(message); }
-    public List<String> getMessageHistory() { return new ArrayList<>(messageHistory); }
+    /**
+     * @return the dictionary this student's major and internships are encoded with
+     */
+    public AttributeDictionary getDictionary() { return dictionary; }
+
+    public void setMajor(String major) {
+        this.major = major;
+        encode();
+    }
+
+    public void setPreviousInternships(List<String> previousInternships) {
+        this.previousInternships = new InternshipList(previousInternships);
+        encode();
+    }
+
+    /**
+     * Rebuilds the scoring ids from the current major and internships. The
+     * only place they are written, so readers on other threads see a consistent copy.
+     */
+    private void encode() {
+        encoded = new Encoded(dictionary, major, previousInternships);
+    }
+
+    public void addMessageToHistory(String message) { messageLog.append(ChatMessage.note(message)); }
+
+    /**
+     * @return copy of the history as display strings, e.g. "To Alice: hi"
+     */
+    public List<String> getMessageHistory() {
+        List<String> history = new ArrayList<>();
+        for (ChatMessage m : messageLog) history.add(m.toString());
+        return history;
+    }
+
+    /**
+     * @return the lock-free log backing this student's history; safe to append to from any thread
+     */
+    public MessageLog getMessageLog() { return messageLog; }
 
      /**
      * Calculates connection strength with another student.
@@ -54,11 +116,15 @@ public class UniversityStudent extends Student {
      * 
      * @param other the other student
      * @return total connection strength
+     * @throws NullPointerException if this student has no major
      */
     @Override
     public int calculateConnectionStrength(Student other) {
         if (!(other instanceof UniversityStudent)) return 0;
         UniversityStudent o = (UniversityStudent) other;
+        if (this.dictionary != o.dictionary) return stringStrength(o);
+        Encoded mine = this.encoded;
+        Encoded theirs = o.encoded;
         int score = 0;
         
         // Check if they are roommates (+4)
@@ -67,25 +133,130 @@ public class UniversityStudent extends Student {
         }
         
         // Count shared internships (+3 each)
+        score += 3 * sharedInternships(mine.internshipIds, theirs.distinctInternshipIds);
+        
+        // Same major (+2)
+        if (mine.majorId == AttributeDictionary.NULL_ID) throw new NullPointerException("Student " + name + " has no major");
+        if (mine.majorId == theirs.majorId) {
+            score += 2;
+        }
+        
+        // Same age (+1)
+        if (this.age == o.age) {
+            score += 1;
+        }
+        
+        return score;
+    }
+
+    /**
+     * The same rules on the strings, for students encoded with different dictionaries.
+     */
+    private int stringStrength(UniversityStudent o) {
+        int score = 0;
+        if (this.assignedRoommate != null && this.assignedRoommate.equals(o)) {
+            score += 4;
+        }
         for (String internship : this.previousInternships) {
             if (o.previousInternships.contains(internship)) {
                 score += 3;
             }
         }
-        
-        // Same major (+2)
         if (this.major.equals(o.major)) {
             score += 2;
         }
-        
-        // Same age (+1)
         if (this.age == o.age) {
             score += 1;
         }
-        
         return score;
     }
 
+    /**
+     * Merge-intersects sorted id arrays. Every entry of {@code mine} that appears in
+     * {@code theirs} counts, so a company listed twice by this student counts twice,
+     * as with the original per-entry contains check.
+     */
+    private static int sharedInternships(int[] mine, int[] theirs) {
+        int count = 0;
+        int j = 0;
+        for (int id : mine) {
+            while (j < theirs.length && theirs[j] < id) j++;
+            if (j == theirs.length) break;
+            if (theirs[j] == id) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Immutable snapshot of the dictionary ids, with internships as sorted
+     * company ids: with duplicates for this student's side of a comparison,
+     * distinct for the other side.
+     */
+    private static class Encoded {
+        final int majorId;
+        final int[] internshipIds;
+        final int[] distinctInternshipIds;
+
+        Encoded(AttributeDictionary dictionary, String major, List<String> internships) {
+            majorId = dictionary.idOf(major);
+            int[] ids = new int[internships.size()];
+            for (int k = 0; k < ids.length; k++) ids[k] = dictionary.idOf(internships.get(k));
+            Arrays.sort(ids);
+            int distinct = 0;
+            int[] unique = new int[ids.length];
+            for (int k = 0; k < ids.length; k++) {
+                if (k == 0 || ids[k] != ids[k - 1]) unique[distinct++] = ids[k];
+            }
+            internshipIds = ids;
+            distinctInternshipIds = distinct == ids.length ? ids : Arrays.copyOf(unique, distinct);
+        }
+    }
+
+    /**
+     * Internship list that re-encodes the student after every change.
+     * Bulk operations inherited from AbstractList go through add, set and remove.
+     */
+    private class InternshipList extends AbstractList<String> {
+        final List<String> items;
+
+        InternshipList(List<String> items) {
+            this.items = new ArrayList<>(items);
+        }
+
+        @Override
+        public String get(int index) { return items.get(index); }
+
+        @Override
+        public int size() { return items.size(); }
+
+        @Override
+        public String set(int index, String element) {
+            String old = items.set(index, element);
+            changed();
+            return old;
+        }
+
+        @Override
+        public void add(int index, String element) {
+            items.add(index, element);
+            modCount++;
+            changed();
+        }
+
+        @Override
+        public String remove(int index) {
+            String old = items.remove(index);
+            modCount++;
+            changed();
+            return old;
+        }
+
+        // A list replaced by setPreviousInternships no longer speaks for the student
+        private void changed() {
+            if (previousInternships == this) encode();
+        }
+    }
+
     @Override
     public String toString() {
         return "UniversityStudent{" +
@@ -109,4 +280,4 @@ public class UniversityStudent extends Student {
 
     @Override
     public int hashCode() { return name.hashCode(); }
-}
\ No newline at end of file
+}